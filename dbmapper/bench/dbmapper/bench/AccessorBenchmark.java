@@ -0,0 +1,95 @@
+package dbmapper.bench;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import dbmapper.util.ClassHelper;
+import dbmapper.util.Getter;
+import dbmapper.util.Setter;
+
+// compares property access through reflective Getters and Setters with the ones ClassHelper
+// builds through LambdaMetafactory.  each round copies every property of one row onto another,
+// the way mapping and binding do.  run with the library on the classpath:
+//   java -cp out dbmapper.bench.AccessorBenchmark [rows]
+public class AccessorBenchmark {
+	private static final int ROUNDS = 5;
+
+	public static void main(String[] args) throws Exception {
+		int rows = (args.length > 0)?Integer.parseInt(args[0]):10_000_000;
+		ClassHelper classHelper = new ClassHelper(Row.class);
+
+		Getter[] reflectiveGetters = new Getter[] {
+			new Getter(Row.class.getMethod("getId")), new Getter(Row.class.getMethod("getName")), new Getter(Row.class.getMethod("getScore"))};
+		Setter[] reflectiveSetters = new Setter[] {
+			new Setter(Row.class.getMethod("setId", long.class)), new Setter(Row.class.getMethod("setName", String.class)),
+			new Setter(Row.class.getMethod("setScore", double.class))};
+		Getter[] lambdaGetters = new Getter[] {
+			classHelper.getGetterForProperty("id"), classHelper.getGetterForProperty("name"), classHelper.getGetterForProperty("score")};
+		Setter[] lambdaSetters = new Setter[] {
+			classHelper.getSetterForProperty("id"), classHelper.getSetterForProperty("name"), classHelper.getSetterForProperty("score")};
+
+		for(int round = 1; round <= ROUNDS; round++) {
+			// the first rounds are warm up, the last ones are the numbers to go by
+			System.out.printf("round %d: reflection %.1f ns/row, lambdas %.1f ns/row%n", round,
+				copy(reflectiveGetters, reflectiveSetters, rows), copy(lambdaGetters, lambdaSetters, rows));
+		}
+	}
+
+	private static double copy(Getter[] getters, Setter[] setters, int rows) throws Exception {
+		Row from = new Row(), to = new Row();
+		from.setName("name");
+		long start = System.nanoTime();
+		for(int i = 0; i < rows; i++) {
+			from.setId(i);
+			for(int j = 0; j < getters.length; j++) {
+				setters[j].setValue(to, getters[j].getValue(from));
+			}
+		}
+		long elapsed = System.nanoTime() - start;
+		if (to.getId() != rows - 1) {
+			throw new IllegalStateException("copied " + to.getId());
+		}
+		return (double)elapsed / rows;
+	}
+
+	public static class Row {
+		private long id;
+		private String name;
+		private double score;
+
+		public long getId() {
+			return id;
+		}
+
+		public void setId(long id) {
+			this.id = id;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public void setName(String name) {
+			this.name = name;
+		}
+
+		public double getScore() {
+			return score;
+		}
+
+		public void setScore(double score) {
+			this.score = score;
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package dbmapper.bench;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+
+import dbmapper.ColumnReader;
+import dbmapper.ColumnWriter;
+import dbmapper.DefaultTypeConverter;
+import dbmapper.Jdbc42TypeConverter;
+import dbmapper.TypeConverter;
+
+// measures the bytes allocated per OffsetDateTime cell read and bound by DefaultTypeConverter
+// and Jdbc42TypeConverter, against a stub driver reporting JDBC 4.2.  the stubs are proxies,
+// so what a bare call into them allocates is measured first and taken off the other numbers.
+// what a real driver allocates building or binding the value itself isn't counted.
+// needs a HotSpot jvm for per-thread allocation counts:
+//   java -cp out dbmapper.bench.ConverterBenchmark [cells]
+public class ConverterBenchmark {
+	private static final int ROUNDS = 5;
+	private static final OffsetDateTime VALUE = OffsetDateTime.of(2020, 1, 2, 3, 4, 5, 0, ZoneOffset.ofHours(2));
+
+	public static void main(String[] args) throws Exception {
+		int cells = (args.length > 0)?Integer.parseInt(args[0]):1_000_000;
+		PreparedStatement ps = stub(PreparedStatement.class);
+		ResultSet rs = stub(ResultSet.class);
+		TypeConverter[] converters = new TypeConverter[] {new DefaultTypeConverter(), new Jdbc42TypeConverter()};
+
+		for(int round = 1; round <= ROUNDS; round++) {
+			double overhead = measure(cells, () -> ps.setObject(1, VALUE));
+			StringBuilder b = new StringBuilder("round " + round + ":");
+			for(TypeConverter converter : converters) {
+				@SuppressWarnings("unchecked")
+				ColumnWriter<OffsetDateTime> writer = (ColumnWriter<OffsetDateTime>)converter.getColumnWriter(OffsetDateTime.class);
+				ColumnReader<?> reader = converter.getColumnReader(OffsetDateTime.class);
+				b.append(String.format(" %s bind %.0f read %.0f bytes/cell,", converter.getClass().getSimpleName(),
+					measure(cells, () -> writer.setValue(ps, 1, VALUE)) - overhead, measure(cells, () -> reader.getValue(rs, 1)) - overhead));
+			}
+			System.out.println(b.substring(0, b.length() - 1));
+		}
+	}
+
+	private static double measure(int cells, Cell cell) throws Exception {
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		long start = threads.getThreadAllocatedBytes(thread);
+		for(int i = 0; i < cells; i++) {
+			cell.run();
+		}
+		return (double)(threads.getThreadAllocatedBytes(thread) - start) / cells;
+	}
+
+	private interface Cell {
+		void run() throws Exception;
+	}
+
+	// just enough of a driver for the converters: version 4.2, and a timestamp column holding VALUE.
+	// the objects are made once, so asking for the statement or connection allocates nothing.
+	private static <T> T stub(Class<T> type) {
+		Timestamp timestamp = Timestamp.from(VALUE.toInstant());
+		DatabaseMetaData dbmd = proxy(DatabaseMetaData.class, timestamp, null, null);
+		Connection connection = proxy(Connection.class, timestamp, null, dbmd);
+		PreparedStatement ps = proxy(PreparedStatement.class, timestamp, connection, null);
+		return type.cast((type == ResultSet.class)?proxy(ResultSet.class, timestamp, ps, null):ps);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> T proxy(Class<T> type, Timestamp timestamp, Object parent, DatabaseMetaData dbmd) {
+		return (T)Proxy.newProxyInstance(ConverterBenchmark.class.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+			switch(method.getName()) {
+				case "getStatement":
+				case "getConnection": return parent;
+				case "getMetaData": return dbmd;
+				case "getJDBCMajorVersion": return 4;
+				case "getJDBCMinorVersion": return 2;
+				case "getObject": return VALUE;
+				case "getTimestamp": return timestamp;
+				case "wasNull": return false;
+				default: return null;
+			}
+		});
+	}
+}
@@ -0,0 +1,510 @@
+package dbmapper;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+// a result set held column by column instead of as one object per row.  int, long, double and
+// boolean columns are read by index straight into primitive arrays, strings are dictionary
+// encoded into an int code per row, and only the remaining columns go through the
+// TypeConverter.  the arrays are trimmed to the row count once reading is done, so they can be
+// handed out as they are for tight loops or parallel streams.
+public class ColumnBatch {
+	private int size;
+	private Map<String, ColumnVector> columns = new LinkedHashMap<>();
+	private List<ColumnVector> vectors;
+
+	private ColumnBatch(List<ColumnVector> vectors, int size) {
+		this.vectors = vectors;
+		this.size = size;
+		for(ColumnVector vector : vectors) {
+			columns.putIfAbsent(vector.name.toLowerCase(), vector);
+		}
+	}
+
+	/** Read every remaining row of rs.  Columns named in types (case-insensitively) are read as that type,
+	 * the rest as the closest type to their SQL type. */
+	public static ColumnBatch read(ResultSet rs, TypeConverter typeConverter, Map<String, Class<?>> types) throws Exception {
+		Map<String, Class<?>> lowerCaseTypes = new HashMap<>();
+		for(Map.Entry<String, Class<?>> type : types.entrySet()) {
+			lowerCaseTypes.put(type.getKey().toLowerCase(), type.getValue());
+		}
+
+		ResultSetMetaData md = rs.getMetaData();
+		int columnCount = md.getColumnCount();
+		int capacity = 256;
+		List<ColumnVector> vectors = new ArrayList<>();
+		for(int i = 1; i <= columnCount; i++) {
+			String name = md.getColumnLabel(i);
+			Class<?> type = lowerCaseTypes.get(name.toLowerCase());
+			vectors.add(createVector(name, (type == null)?getType(md, i):type, typeConverter, capacity));
+		}
+
+		ColumnVector[] array = vectors.toArray(new ColumnVector[columnCount]);
+		int rows = 0;
+		while(rs.next()) {
+			for(int i = 0; i < array.length; i++) {
+				array[i].read(rs, i + 1, rows);
+			}
+			rows++;
+		}
+		for(ColumnVector vector : array) {
+			vector.trim(rows);
+		}
+		return new ColumnBatch(Collections.unmodifiableList(vectors), rows);
+	}
+
+	// exact numerics stay BigDecimal unless asked for otherwise, so money doesn't quietly become a double
+	private static Class<?> getType(ResultSetMetaData md, int column) throws Exception {
+		switch(md.getColumnType(column)) {
+			case Types.TINYINT:
+			case Types.SMALLINT:
+			case Types.INTEGER:
+				return int.class;
+			case Types.BIGINT:
+				return long.class;
+			case Types.REAL:
+			case Types.FLOAT:
+			case Types.DOUBLE:
+				return double.class;
+			case Types.BIT:
+			case Types.BOOLEAN:
+				return boolean.class;
+			case Types.CHAR:
+			case Types.VARCHAR:
+			case Types.LONGVARCHAR:
+			case Types.NCHAR:
+			case Types.NVARCHAR:
+			case Types.LONGNVARCHAR:
+			case Types.CLOB:
+			case Types.NCLOB:
+				return String.class;
+			case Types.DECIMAL:
+			case Types.NUMERIC:
+				return BigDecimal.class;
+			case Types.DATE:
+				return LocalDate.class;
+			case Types.TIME:
+				return LocalTime.class;
+			case Types.TIMESTAMP:
+				return LocalDateTime.class;
+			case Types.BINARY:
+			case Types.VARBINARY:
+			case Types.LONGVARBINARY:
+			case Types.BLOB:
+				return byte[].class;
+			default:
+				return Object.class;
+		}
+	}
+
+	private static ColumnVector createVector(String name, Class<?> type, TypeConverter typeConverter, int capacity) {
+		if ((type == int.class) || (type == Integer.class) || (type == short.class) || (type == Short.class)
+		|| (type == byte.class) || (type == Byte.class)) {
+			return new IntVector(name, capacity);
+		} else if ((type == long.class) || (type == Long.class)) {
+			return new LongVector(name, capacity);
+		} else if ((type == double.class) || (type == Double.class) || (type == float.class) || (type == Float.class)) {
+			return new DoubleVector(name, capacity);
+		} else if ((type == boolean.class) || (type == Boolean.class)) {
+			return new BooleanVector(name);
+		} else if (type == String.class) {
+			return new StringVector(name, capacity);
+		} else if (type == Object.class) {
+			return new ObjectVector<>(name, Object.class, (rs, i) -> rs.getObject(i), capacity);
+		}
+		return new ObjectVector<>(name, type, typeConverter.getColumnReader(type), capacity);
+	}
+
+	/** The number of rows. */
+	public int size() {
+		return size;
+	}
+
+	/** The columns in result set order. */
+	public List<ColumnVector> getColumns() {
+		return vectors;
+	}
+
+	public ColumnVector getColumn(int index) {
+		return vectors.get(index);
+	}
+
+	/** The column with the given label, ignoring case. */
+	public ColumnVector getColumn(String name) {
+		ColumnVector vector = columns.get(name.toLowerCase());
+		if (vector == null) {
+			throw new DBMapperException("No column " + name);
+		}
+		return vector;
+	}
+
+	public IntVector getIntColumn(String name) {
+		return getColumn(name, IntVector.class);
+	}
+
+	public LongVector getLongColumn(String name) {
+		return getColumn(name, LongVector.class);
+	}
+
+	public DoubleVector getDoubleColumn(String name) {
+		return getColumn(name, DoubleVector.class);
+	}
+
+	public BooleanVector getBooleanColumn(String name) {
+		return getColumn(name, BooleanVector.class);
+	}
+
+	public StringVector getStringColumn(String name) {
+		return getColumn(name, StringVector.class);
+	}
+
+	@SuppressWarnings("unchecked")
+	public <T> ObjectVector<T> getObjectColumn(String name, Class<T> type) {
+		ObjectVector<?> vector = getColumn(name, ObjectVector.class);
+		if (!type.isAssignableFrom(vector.type)) {
+			throw new DBMapperException("Column " + name + " holds " + vector.type.getName() + ", not " + type.getName());
+		}
+		return (ObjectVector<T>)vector;
+	}
+
+	private <V extends ColumnVector> V getColumn(String name, Class<V> vectorClass) {
+		ColumnVector vector = getColumn(name);
+		if (!vectorClass.isInstance(vector)) {
+			throw new DBMapperException("Column " + name + " is a " + vector.getClass().getSimpleName() + ", not a " + vectorClass.getSimpleName());
+		}
+		return vectorClass.cast(vector);
+	}
+
+	/** One column of values, with SQL NULLs tracked apart from the values. */
+	public static abstract class ColumnVector {
+		private String name;
+		// most columns have no nulls, so the set is only created for the first one
+		private BitSet nulls;
+
+		ColumnVector(String name) {
+			this.name = name;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public boolean isNull(int row) {
+			return (nulls != null) && nulls.get(row);
+		}
+
+		/** The value of row, boxed, or null. */
+		public abstract Object getObject(int row);
+
+		abstract void read(ResultSet rs, int columnIndex, int row) throws Exception;
+
+		abstract void trim(int rows);
+
+		void setNull(int row) {
+			if (nulls == null) {
+				nulls = new BitSet();
+			}
+			nulls.set(row);
+		}
+
+		static int grow(int length, int row) {
+			return (row < length)?length:Math.max(row + 1, length * 2);
+		}
+	}
+
+	/** Holds 0 for nulls. */
+	public static class IntVector extends ColumnVector {
+		private int[] values;
+
+		IntVector(String name, int capacity) {
+			super(name);
+			values = new int[capacity];
+		}
+
+		public int get(int row) {
+			return values[row];
+		}
+
+		/** The values themselves, one per row, not a copy. */
+		public int[] getValues() {
+			return values;
+		}
+
+		public IntStream stream() {
+			return Arrays.stream(values);
+		}
+
+		public Object getObject(int row) {
+			return isNull(row)?null:(Object)values[row];
+		}
+
+		void read(ResultSet rs, int columnIndex, int row) throws Exception {
+			if (row == values.length) {
+				values = Arrays.copyOf(values, grow(values.length, row));
+			}
+			values[row] = rs.getInt(columnIndex);
+			if (rs.wasNull()) {
+				setNull(row);
+			}
+		}
+
+		void trim(int rows) {
+			values = Arrays.copyOf(values, rows);
+		}
+	}
+
+	/** Holds 0 for nulls. */
+	public static class LongVector extends ColumnVector {
+		private long[] values;
+
+		LongVector(String name, int capacity) {
+			super(name);
+			values = new long[capacity];
+		}
+
+		public long get(int row) {
+			return values[row];
+		}
+
+		/** The values themselves, one per row, not a copy. */
+		public long[] getValues() {
+			return values;
+		}
+
+		public LongStream stream() {
+			return Arrays.stream(values);
+		}
+
+		public Object getObject(int row) {
+			return isNull(row)?null:(Object)values[row];
+		}
+
+		void read(ResultSet rs, int columnIndex, int row) throws Exception {
+			if (row == values.length) {
+				values = Arrays.copyOf(values, grow(values.length, row));
+			}
+			values[row] = rs.getLong(columnIndex);
+			if (rs.wasNull()) {
+				setNull(row);
+			}
+		}
+
+		void trim(int rows) {
+			values = Arrays.copyOf(values, rows);
+		}
+	}
+
+	/** Holds 0 for nulls. */
+	public static class DoubleVector extends ColumnVector {
+		private double[] values;
+
+		DoubleVector(String name, int capacity) {
+			super(name);
+			values = new double[capacity];
+		}
+
+		public double get(int row) {
+			return values[row];
+		}
+
+		/** The values themselves, one per row, not a copy. */
+		public double[] getValues() {
+			return values;
+		}
+
+		public DoubleStream stream() {
+			return Arrays.stream(values);
+		}
+
+		public Object getObject(int row) {
+			return isNull(row)?null:(Object)values[row];
+		}
+
+		void read(ResultSet rs, int columnIndex, int row) throws Exception {
+			if (row == values.length) {
+				values = Arrays.copyOf(values, grow(values.length, row));
+			}
+			values[row] = rs.getDouble(columnIndex);
+			if (rs.wasNull()) {
+				setNull(row);
+			}
+		}
+
+		void trim(int rows) {
+			values = Arrays.copyOf(values, rows);
+		}
+	}
+
+	/** Holds false for nulls. */
+	public static class BooleanVector extends ColumnVector {
+		private BitSet values = new BitSet();
+		private int size;
+
+		BooleanVector(String name) {
+			super(name);
+		}
+
+		public boolean get(int row) {
+			return values.get(row);
+		}
+
+		/** The number of rows that are true. */
+		public int count() {
+			return values.cardinality();
+		}
+
+		public Object getObject(int row) {
+			return isNull(row)?null:(Object)values.get(row);
+		}
+
+		void read(ResultSet rs, int columnIndex, int row) throws Exception {
+			if (rs.getBoolean(columnIndex)) {
+				values.set(row);
+			} else if (rs.wasNull()) {
+				setNull(row);
+			}
+			size = row + 1;
+		}
+
+		void trim(int rows) {
+			size = rows;
+		}
+	}
+
+	// each distinct string is kept once, and rows hold its position in the dictionary, -1 for null
+	/** Strings as codes into a dictionary of the distinct values, in order of first appearance. */
+	public static class StringVector extends ColumnVector {
+		private int[] codes;
+		private List<String> dictionary = new ArrayList<>();
+		private Map<String, Integer> lookup = new HashMap<>();
+
+		StringVector(String name, int capacity) {
+			super(name);
+			codes = new int[capacity];
+		}
+
+		public String get(int row) {
+			int code = codes[row];
+			return (code < 0)?null:dictionary.get(code);
+		}
+
+		public int getCode(int row) {
+			return codes[row];
+		}
+
+		/** The dictionary code of each row, not a copy. */
+		public int[] getCodes() {
+			return codes;
+		}
+
+		public List<String> getDictionary() {
+			return dictionary;
+		}
+
+		/** The code of value, or -1 if no row holds it. */
+		public int getCode(String value) {
+			Integer code = lookup.get(value);
+			return (code == null)?-1:code;
+		}
+
+		public Object getObject(int row) {
+			return get(row);
+		}
+
+		void read(ResultSet rs, int columnIndex, int row) throws Exception {
+			if (row == codes.length) {
+				codes = Arrays.copyOf(codes, grow(codes.length, row));
+			}
+			String value = rs.getString(columnIndex);
+			if (value == null) {
+				codes[row] = -1;
+				setNull(row);
+				return;
+			}
+			Integer code = lookup.get(value);
+			if (code == null) {
+				code = dictionary.size();
+				dictionary.add(value);
+				lookup.put(value, code);
+			}
+			codes[row] = code;
+		}
+
+		void trim(int rows) {
+			codes = Arrays.copyOf(codes, rows);
+			dictionary = Collections.unmodifiableList(dictionary);
+		}
+	}
+
+	/** Values read through the TypeConverter, or as the driver returns them. */
+	public static class ObjectVector<T> extends ColumnVector {
+		private Class<T> type;
+		private ColumnReader<?> reader;
+		private Object[] values;
+
+		ObjectVector(String name, Class<T> type, ColumnReader<?> reader, int capacity) {
+			super(name);
+			this.type = type;
+			this.reader = reader;
+			values = new Object[capacity];
+		}
+
+		public Class<T> getType() {
+			return type;
+		}
+
+		@SuppressWarnings("unchecked")
+		public T get(int row) {
+			return (T)values[row];
+		}
+
+		public Object getObject(int row) {
+			return values[row];
+		}
+
+		void read(ResultSet rs, int columnIndex, int row) throws Exception {
+			if (row == values.length) {
+				values = Arrays.copyOf(values, grow(values.length, row));
+			}
+			Object value = reader.getValue(rs, columnIndex);
+			if (value == null) {
+				setNull(row);
+			}
+			values[row] = value;
+		}
+
+		void trim(int rows) {
+			values = Arrays.copyOf(values, rows);
+		}
+	}
+}
@@ -15,7 +15,14 @@ package dbmapper;
  */
 
 import java.sql.ResultSet;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import dbmapper.util.RowIterator;
+import dbmapper.util.TableScan;
 
 public interface DBMapper {
 	
@@ -29,6 +36,11 @@ public interface DBMapper {
 	public Long insert(Object object);
 	public Long insert(String tableName, Object object);
 	
+	/** Insert all objects, sending those with the same non-null columns as JDBC batches. Generated keys are written
+	 * back through the setter of the table's auto-increment column and returned in iteration order (null if none). */
+	public List<Long> insertAll(Collection<?> objects);
+	public List<Long> insertAll(String tableName, Collection<?> objects);
+	
 	// currently determines which column(s) are used to identify this record
 	// based on the table definition of primary key(s).
 	// it might make sense to provide more flexible update functionality in a future version
@@ -36,10 +48,84 @@ public interface DBMapper {
 	public void update(Object object);
 	public void update(String tableName, Object object);
 	
+	/** Update all objects as JDBC batches, returning the update count of each in iteration order. */
+	public int[] updateAll(Collection<?> objects);
+	public int[] updateAll(String tableName, Collection<?> objects);
+	
+	/** Insert object, or update the existing row with the same primary key, in a single statement.  Derby has no such
+	 * statement, so there this throws DBMapperException. */
+	public void upsert(Object object);
+	public void upsert(String tableName, Object object);
+	
+	/** Upsert all objects as JDBC batches, returning the driver's count for each in iteration order. */
+	public int[] upsertAll(Collection<?> objects);
+	public int[] upsertAll(String tableName, Collection<?> objects);
+	
+	/** Delete the row with object's primary key. */
+	public void delete(Object object);
+	public void delete(String tableName, Object object);
+	
+	/** Delete the rows with the objects' primary keys, returning the number of rows deleted. */
+	public int deleteAll(Collection<?> objects);
+	public int deleteAll(String tableName, Collection<?> objects);
+	
 
+	/** Select the row of clazz's table with the given primary key, or null if there isn't one. */
+	public <T> T findById(Class<T> clazz, Object... key);
+	
+	/** Select the rows of clazz's table with any of the given primary keys, given as Object[] for composite keys. */
+	public <T> List<T> findByIds(Class<T> clazz, Collection<?> keys);
+	
+	/** Read every row of clazz's table in primary key order, pageSize rows at a time, each page selecting the rows after 
+	 * the last key read.  Close the scan, or its stream, if it isn't read to the end. */
+	public <T> TableScan<T> scan(Class<T> clazz, int pageSize);
+	public <T> TableScan<T> scan(String tableName, Class<T> clazz, int pageSize);
+	
+	/** Like scan, for a table with a single key column, reading only the keys after after and up to upTo.  Either 
+	 * can be null for no bound. */
+	public <T> TableScan<T> scan(String tableName, Class<T> clazz, int pageSize, Object after, Object upTo);
+	
+	/** Run sql with params bound in order, mapping each row to clazz. */
+	public <T> List<T> query(Class<T> clazz, String sql, Object... params);
+	
+	/** Like query, but the result may be served from and cached in a query cache, invalidated by writes to any of tables. */
+	public <T> List<T> query(Class<T> clazz, Collection<String> tables, String sql, Object... params);
+	
 	/** Build a single instance of the passed in class from the ResultSet. This method does not call rs.next(). */
 	public <T> T buildSingle(Class<T> clazz, ResultSet rs);
 	
 	/** Build a list of the full contents of the passed in class from the ResultSet */	
 	public <T> List<T> buildList(Class<T> clazz, ResultSet rs);
+	
+	/** Read the ResultSet column by column into primitive arrays and dictionary encoded strings, without building an 
+	 * object per row.  Each column is read as the closest type to its SQL type. */
+	public ColumnBatch buildColumns(ResultSet rs);
+	
+	/** Like buildColumns, reading the columns named in types as the given class: a primitive or its wrapper, String, 
+	 * or anything else the TypeConverter can read. */
+	public ColumnBatch buildColumns(ResultSet rs, Map<String, Class<?>> types);
+	
+	/** Build the parents of a parent/child join, each holding its children, mapping every parent once. */
+	public <P> List<P> buildList(OneToMany<P, ?> relation, ResultSet rs);
+	
+	/** Like buildList(OneToMany, ResultSet), passing each parent to consumer once all its children are added. */
+	public <P> void forEach(OneToMany<P, ?> relation, ResultSet rs, Consumer<? super P> consumer);
+	
+	/** Map the ResultSet into a read-only lookup by the primary key of clazz's table, whose columns it must include. 
+	 * A single integral key is indexed without boxing, see EntityIndex.OfLong. */
+	public <T> EntityIndex<T> buildIndex(Class<T> clazz, ResultSet rs);
+	public <T> EntityIndex<T> buildIndex(String tableName, Class<T> clazz, ResultSet rs);
+	
+	/** Pass each row of the ResultSet to consumer.  With reuse, a single instance is refilled for every row, 
+	 * with properties the columns don't map reset to their initial values, so it must not be kept past accept.  Mapping
+	 * engines whose mappers can't refill an instance give a new one per row instead. */
+	public <T> void forEach(Class<T> clazz, ResultSet rs, Consumer<? super T> consumer, boolean reuse);
+	
+	/** Map the ResultSet one row at a time as the stream is consumed, closing rs when the stream is closed or runs out. */
+	public <T> Stream<T> stream(Class<T> clazz, ResultSet rs);
+	public <T> Stream<T> stream(Class<T> clazz, String sql, Object... params);
+	
+	/** Like stream, as an Iterator, which also provides a Spliterator. */
+	public <T> RowIterator<T> iterator(Class<T> clazz, ResultSet rs);
+	public <T> RowIterator<T> iterator(Class<T> clazz, String sql, Object... params);
 }
\ No newline at end of file
@@ -18,31 +18,74 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
-import java.sql.Statement;
+import java.sql.SQLException;
+import java.sql.Types;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 import dbmapper.util.AutoCloseables;
+import dbmapper.util.Binder;
 import dbmapper.util.ClassHelper;
 import dbmapper.util.Column;
 import dbmapper.util.DatabaseHelper;
+import dbmapper.util.DeleteHelper;
+import dbmapper.util.FindHelper;
 import dbmapper.util.DefaultUpdateHelper;
+import dbmapper.util.DefaultMappingEngine;
 import dbmapper.util.Getter;
+import dbmapper.util.InsertHelper;
+import dbmapper.util.InsertHelper.InsertPlan;
+import dbmapper.util.MappingEngine;
+import dbmapper.util.OneToManyMapper;
+import dbmapper.util.PropertyResetter;
 import dbmapper.util.ReflectionHelper;
+import dbmapper.util.RowIterator;
+import dbmapper.util.RowMapper;
+import dbmapper.util.ScanHelper;
+import dbmapper.util.Setter;
+import dbmapper.util.StatementCache;
 import dbmapper.util.StringUtils;
 import dbmapper.util.TableHelper;
+import dbmapper.util.TableScan;
 import dbmapper.util.UpdateHelper;
 
-public class DefaultDBMapper implements DBMapper {
+public class DefaultDBMapper implements DBMapper, AutoCloseable {
 	private static ReflectionHelper reflectionHelper = new ReflectionHelper();
 	private static DatabaseHelper databaseHelper = new DatabaseHelper();
+	// shared so mappers made without an engine also share ClassHelper's cached row mappers
+	private static MappingEngine defaultMappingEngine = new DefaultMappingEngine();
 	
 	private TypeConverter typeConverter;
+	private MappingEngine mappingEngine;
 	private Connection connection;
+	private int batchSize = 1000;
+	private boolean multiRowInsert;
+	private Dialect dialect;
+	private EntityCache entityCache;
+	private QueryCache queryCache;
+	private StatementCache statementCache;
+	private int fetchSize;
+	private MappingPipeline mappingPipeline;
+	private Set<String> pendingTables = new LinkedHashSet<>();
 	
 	public DefaultDBMapper(Connection connection, TypeConverter typeConverter) {
+		this(connection, typeConverter, defaultMappingEngine);
+	}
+	
+	public DefaultDBMapper(Connection connection, TypeConverter typeConverter, MappingEngine mappingEngine) {
 		this.connection = connection;
 		this.typeConverter = typeConverter;
+		this.mappingEngine = mappingEngine;
 	}
 	
 	public String getTableName(Class<?> clazz) {
@@ -54,43 +97,15 @@ public class DefaultDBMapper implements DBMapper {
 		}
 	}
 	
-	// consider creating and caching a single insert statement like updates
-	// for possible performance gains.  a downside is that it may attempt to
-	// to insert a bunch of unnecessary columns, if it is trying to insert all
-	// columns, including null values.  this might also affect how null/default
-	// value columns behave.  need to investigate that more thoroughly.
 	public Long insert(Object object) {
 		return insert(getTableName(object.getClass()), object);
 	}
 	
 	public Long insert(String tableName, Object object) {
 		try (AutoCloseables closeables = new AutoCloseables()) {
-			TableHelper tableHelper = databaseHelper.getTableHelper(connection, tableName);
-			List<String> columns = new ArrayList<String>();
-			List<Object> values = new ArrayList<Object>();
-			for(Column column : tableHelper.getColumns()) {
-				if (!column.isAutoIncrement()) {
-					Object value = getValue(object, column.getPropertyName());
-					if (value != null) {
-						columns.add(column.getName());
-						values.add(value);
-					} // else { logic could be added to complain if the value is null, but the column is not nullable}
-				}
-			}
-			
-			if (columns.isEmpty()) {
-				throw new DBMapperException("All values were null, so no insert could be performed");
-			}
-
-			StringBuilder b = new StringBuilder("INSERT INTO ").append(tableName);
-			b.append(" (").append(StringUtils.join(columns, ", ")).append(")");
-			b.append(" VALUES (").append(StringUtils.repeat("?", columns.size(), ", ")).append(")");
-
-			String sql = b.toString();
-			PreparedStatement ps = closeables.add(connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS));
-			for(int i = 0; i < columns.size(); i++) {
-				typeConverter.setValue(ps, i+1, values.get(i));
-			}
+			InsertPlan plan = getInsertHelper(tableName, object.getClass()).getPlan(object);
+			PreparedStatement ps = StatementCache.prepare(connection, statementCache, closeables, plan.getSql(), true);
+			plan.getBinder(typeConverter).bind(ps, object);
 			
 			ps.execute();
 			ResultSet rs = closeables.add(ps.getGeneratedKeys());
@@ -102,7 +117,295 @@ public class DefaultDBMapper implements DBMapper {
 			throw e;
 		} catch(Exception e) {
 			throw new DBMapperException(e);
+		} finally {
+			invalidate(tableName, object);
+		}
+	}
+	
+	public List<Long> insertAll(Collection<?> objects) {
+		Map<String, List<Object>> tables = groupByTable(objects);
+		if (tables.size() == 1) {
+			return insertAll(tables.keySet().iterator().next(), objects);
+		}
+		
+		Map<Object, Long> keys = new IdentityHashMap<>();
+		for(Map.Entry<String, List<Object>> entry : tables.entrySet()) {
+			List<Long> tableKeys = insertAll(entry.getKey(), entry.getValue());
+			for(int i = 0; i < tableKeys.size(); i++) {
+				keys.put(entry.getValue().get(i), tableKeys.get(i));
+			}
+		}
+		List<Long> list = new ArrayList<>(objects.size());
+		for(Object object : objects) {
+			list.add(keys.get(object));
+		}
+		return list;
+	}
+	
+	// objects with the same non-null columns share an insert plan.  by default each plan gets
+	// one statement that is sent with addBatch/executeBatch in chunks of batchSize.  in multi-row
+	// mode each plan's objects are sent as INSERT ... VALUES (...), (...) with as many rows as
+	// the dialect allows per statement.
+	public List<Long> insertAll(String tableName, Collection<?> objects) {
+		try (AutoCloseables closeables = new AutoCloseables()) {
+			Long[] keys = new Long[objects.size()];
+			Map<InsertPlan, InsertBatch> batches = new LinkedHashMap<>();
+			boolean multiRow = multiRowInsert && getDialect().supportsMultiRowValues();
+			int position = 0;
+			for(Object object : objects) {
+				InsertHelper insertHelper = getInsertHelper(tableName, object.getClass());
+				InsertPlan plan = insertHelper.getPlan(object);
+				InsertBatch batch = batches.get(plan);
+				if (batch == null) {
+					batch = new InsertBatch(plan, insertHelper.getGeneratedKeySetter(), plan.getBinder(typeConverter));
+					if (!multiRow) {
+						batch.ps = StatementCache.prepare(connection, statementCache, closeables, plan.getSql(), true);
+					}
+					batches.put(plan, batch);
+				}
+				batch.objects.add(object);
+				batch.positions.add(position++);
+				if (!multiRow) {
+					batch.binder.bind(batch.ps, object);
+					batch.ps.addBatch();
+					if (batch.objects.size() >= batchSize) {
+						batch.ps.executeBatch();
+						readGeneratedKeys(batch, batch.ps, 0, batch.objects.size(), keys);
+						batch.objects.clear();
+						batch.positions.clear();
+					}
+				}
+			}
+			for(InsertBatch batch : batches.values()) {
+				if (multiRow) {
+					insertMultiRow(batch, keys);
+				} else if (!batch.objects.isEmpty()) {
+					batch.ps.executeBatch();
+					readGeneratedKeys(batch, batch.ps, 0, batch.objects.size(), keys);
+				}
+			}
+			return Arrays.asList(keys);
+		} catch(DBMapperException e) {
+			throw e;
+		} catch(Exception e) {
+			throw new DBMapperException(e);
+		} finally {
+			invalidateAll(tableName, objects);
+		}
+	}
+	
+	// full chunks share one statement, and whatever is left over gets one more
+	private void insertMultiRow(InsertBatch batch, Long[] keys) throws Exception {
+		try (AutoCloseables closeables = new AutoCloseables()) {
+			int columnCount = batch.plan.getColumns().size();
+			int rows = getDialect().getMaxValuesRows(columnCount);
+			PreparedStatement full = null;
+			for(int start = 0; start < batch.objects.size(); start += rows) {
+				int count = Math.min(rows, batch.objects.size() - start);
+				PreparedStatement ps;
+				if (count == rows) {
+					if (full == null) {
+						full = StatementCache.prepare(connection, statementCache, closeables, batch.plan.getMultiRowSql(rows), true);
+					}
+					ps = full;
+				} else {
+					ps = StatementCache.prepare(connection, statementCache, closeables, batch.plan.getMultiRowSql(count), true);
+				}
+				for(int i = 0; i < count; i++) {
+					batch.binder.bind(ps, i * columnCount, batch.objects.get(start + i));
+				}
+				ps.executeUpdate();
+				readGeneratedKeys(batch, ps, start, count, keys);
+			}
+		}
+	}
+	
+	// drivers that can't return keys for a batch just return none
+	private void readGeneratedKeys(InsertBatch batch, PreparedStatement ps, int start, int count, Long[] keys) throws Exception {
+		try (ResultSet rs = ps.getGeneratedKeys()) {
+			Setter setter = batch.generatedKeySetter;
+			for(int i = start; (rs != null) && (i < start + count) && rs.next(); i++) {
+				keys[batch.positions.get(i)] = rs.getLong(1);
+				if (setter != null) {
+					setter.setValue(batch.objects.get(i), typeConverter.getColumnReader(setter.getType()).getValue(rs, 1));
+				}
+			}
+		}
+	}
+	
+	private Map<String, List<Object>> groupByTable(Collection<?> objects) {
+		Map<String, List<Object>> tables = new LinkedHashMap<>();
+		for(Object object : objects) {
+			String tableName = getTableName(object.getClass());
+			List<Object> list = tables.get(tableName);
+			if (list == null) {
+				list = new ArrayList<>();
+				tables.put(tableName, list);
+			}
+			list.add(object);
+		}
+		return tables;
+	}
+	
+	private InsertHelper getInsertHelper(String tableName, Class<?> clazz) throws Exception {
+		TableHelper tableHelper = databaseHelper.getTableHelper(connection, tableName);
+		InsertHelper insertHelper = tableHelper.getInsertHelper(clazz);
+		if (insertHelper == null) {
+			insertHelper = createInsertHelper(tableHelper, reflectionHelper.getClassHelper(clazz));
+			tableHelper.setInsertHelper(clazz, insertHelper);
+		}
+		return insertHelper;
+	}
+	
+	protected InsertHelper createInsertHelper(TableHelper tableHelper, ClassHelper classHelper) throws Exception {
+		List<Column> columns = new ArrayList<>();
+		List<Getter> getters = new ArrayList<>();
+		Setter generatedKeySetter = null;
+		for(Column column : tableHelper.getColumns()) {
+			if (column.isAutoIncrement()) {
+				if (generatedKeySetter == null) {
+					generatedKeySetter = classHelper.getSetterForProperty(column.getPropertyName());
+				}
+			} else {
+				Getter getter = classHelper.getGetterForProperty(column.getPropertyName());
+				if (getter != null) {
+					columns.add(column);
+					getters.add(getter);
+				}
+			}
+		}
+		return new InsertHelper(tableHelper.getTableName(), classHelper, columns, getters, generatedKeySetter, mappingEngine);
+	}
+	
+	public int getBatchSize() {
+		return batchSize;
+	}
+	
+	/** The number of rows sent per executeBatch by the *All methods. */
+	public void setBatchSize(int batchSize) {
+		this.batchSize = batchSize;
+	}
+	
+	public int getFetchSize() {
+		return fetchSize;
+	}
+	
+	/** The fetch size hint given to the driver for streamed and iterated results, 0 for the driver's default. */
+	public void setFetchSize(int fetchSize) {
+		this.fetchSize = fetchSize;
+	}
+	
+	public MappingPipeline getMappingPipeline() {
+		return mappingPipeline;
+	}
+	
+	/** Have buildList and forEach without reuse map rows on the pipeline's workers, null (the default) to map on the calling thread. */
+	public void setMappingPipeline(MappingPipeline mappingPipeline) {
+		this.mappingPipeline = mappingPipeline;
+	}
+	
+	public boolean isMultiRowInsert() {
+		return multiRowInsert;
+	}
+	
+	/** Have insertAll send INSERT ... VALUES (...), (...) statements sized to the dialect's parameter limit 
+	 * instead of JDBC batches, for drivers that send batched rows one at a time. */
+	public void setMultiRowInsert(boolean multiRowInsert) {
+		this.multiRowInsert = multiRowInsert;
+	}
+	
+	/** The dialect set, or the one detected from the connection. */
+	public Dialect getDialect() {
+		if (dialect == null) {
+			dialect = Dialect.of(connection);
+		}
+		return dialect;
+	}
+	
+	public void setDialect(Dialect dialect) {
+		this.dialect = dialect;
+	}
+	
+	public EntityCache getEntityCache() {
+		return entityCache;
+	}
+	
+	/** Have findById/findByIds read through cache, with writes made through this mapper invalidating it.
+	 * Rows read while auto-commit is off aren't cached.  Tables written while it's off aren't cached for any connection
+	 * until the transaction is ended through commit, rollback or transactionEnded. */
+	public void setEntityCache(EntityCache entityCache) {
+		this.entityCache = entityCache;
+	}
+	
+	public QueryCache getQueryCache() {
+		return queryCache;
+	}
+	
+	/** Cache the results of query calls that name their tables, with writes made through this mapper invalidating them.
+	 * While auto-commit is off those queries go straight to the database, and tables written then aren't cached for any 
+	 * connection until the transaction is ended through commit, rollback or transactionEnded. */
+	public void setQueryCache(QueryCache queryCache) {
+		this.queryCache = queryCache;
+	}
+	
+	public StatementCache getStatementCache() {
+		return statementCache;
+	}
+	
+	/** Keep up to size idle prepared statements open for reuse on this mapper's connection, 0 to close them after every use.
+	 * They stay open until the mapper is closed. */
+	public void setStatementCacheSize(int size) {
+		if (statementCache != null) {
+			statementCache.close();
+			statementCache = null;
+		}
+		if (size > 0) {
+			statementCache = new StatementCache(connection, size);
+		}
+	}
+	
+	/** Close any cached statements, and end any transaction the caches were told about.  The connection is left open. */
+	public void close() {
+		setStatementCacheSize(0);
+		transactionEnded();
+	}
+	
+	/** Commit the connection, then let the caches take rows of the tables written since. */
+	public void commit() {
+		try {
+			connection.commit();
+		} catch(SQLException e) {
+			throw new DBMapperException(e);
+		} finally {
+			transactionEnded();
+		}
+	}
+	
+	public void rollback() {
+		try {
+			connection.rollback();
+		} catch(SQLException e) {
+			throw new DBMapperException(e);
+		} finally {
+			transactionEnded();
+		}
+	}
+	
+	// the caches don't take rows of a table this mapper wrote with auto-commit off until
+	// here, since other connections keep reading the old rows until the commit.  call this
+	// after committing or rolling back on the connection itself rather than through commit
+	// or rollback.
+	/** Tell the caches the transaction the connection was in has ended. */
+	public void transactionEnded() {
+		for(String tableName : pendingTables) {
+			if (entityCache != null) {
+				entityCache.endWrite(tableName);
+			}
+			if (queryCache != null) {
+				queryCache.endWrite(tableName);
+			}
 		}
+		pendingTables.clear();
 	}
 	
 	public void update(Object object) {
@@ -111,20 +414,222 @@ public class DefaultDBMapper implements DBMapper {
 
 	public void update(String tableName, Object object) {
 		try {
-			Class<?> clazz = object.getClass();
-			TableHelper tableHelper = databaseHelper.getTableHelper(connection, tableName);
-			ClassHelper classHelper = reflectionHelper.getClassHelper(clazz);
-			UpdateHelper updateHelper = tableHelper.getUpdateHelper();
-			if (updateHelper == null) {
-				updateHelper = createUpdateHelper(tableHelper, classHelper);
-				tableHelper.setUpdateHelper(updateHelper);
+			getUpdateHelper(tableName, object.getClass()).update(connection, statementCache, typeConverter, object);			
+		} catch(Exception e) {
+			throw new DBMapperException(e);
+		} finally {
+			invalidate(tableName, object);
+		}
+	}
+	
+	public int[] updateAll(Collection<?> objects) {
+		Map<String, List<Object>> tables = groupByTable(objects);
+		if (tables.size() == 1) {
+			return updateAll(tables.keySet().iterator().next(), objects);
+		}
+		
+		Map<Object, Integer> counts = new IdentityHashMap<>();
+		for(Map.Entry<String, List<Object>> entry : tables.entrySet()) {
+			int[] tableCounts = updateAll(entry.getKey(), entry.getValue());
+			for(int i = 0; i < tableCounts.length; i++) {
+				counts.put(entry.getValue().get(i), tableCounts[i]);
 			}
-			updateHelper.update(connection, typeConverter, object);			
+		}
+		int[] list = new int[objects.size()];
+		int i = 0;
+		for(Object object : objects) {
+			list[i++] = counts.get(object);
+		}
+		return list;
+	}
+	
+	public int[] updateAll(String tableName, Collection<?> objects) {
+		if (objects.isEmpty()) {
+			return new int[0];
+		}
+		try {
+			UpdateHelper updateHelper = getUpdateHelper(tableName, objects.iterator().next().getClass());
+			return updateHelper.updateAll(connection, statementCache, typeConverter, objects, batchSize);
+		} catch(DBMapperException e) {
+			throw e;
+		} catch(Exception e) {
+			throw new DBMapperException(e);
+		} finally {
+			invalidateAll(tableName, objects);
+		}
+	}
+	
+	private UpdateHelper getUpdateHelper(String tableName, Class<?> clazz) throws Exception {
+		TableHelper tableHelper = databaseHelper.getTableHelper(connection, tableName);
+		UpdateHelper updateHelper = tableHelper.getUpdateHelper();
+		if (updateHelper == null) {
+			updateHelper = createUpdateHelper(tableHelper, reflectionHelper.getClassHelper(clazz));
+			tableHelper.setUpdateHelper(updateHelper);
+		}
+		return updateHelper;
+	}
+	
+	public void upsert(Object object) {
+		upsert(getTableName(object.getClass()), object);
+	}
+	
+	public void upsert(String tableName, Object object) {
+		try {
+			getUpsertHelper(tableName, object.getClass()).update(connection, statementCache, typeConverter, object);
+		} catch(DBMapperException e) {
+			throw e;
+		} catch(Exception e) {
+			throw new DBMapperException(e);
+		} finally {
+			invalidate(tableName, object);
+		}
+	}
+	
+	public int[] upsertAll(Collection<?> objects) {
+		Map<String, List<Object>> tables = groupByTable(objects);
+		if (tables.size() == 1) {
+			return upsertAll(tables.keySet().iterator().next(), objects);
+		}
+		
+		Map<Object, Integer> counts = new IdentityHashMap<>();
+		for(Map.Entry<String, List<Object>> entry : tables.entrySet()) {
+			int[] tableCounts = upsertAll(entry.getKey(), entry.getValue());
+			for(int i = 0; i < tableCounts.length; i++) {
+				counts.put(entry.getValue().get(i), tableCounts[i]);
+			}
+		}
+		int[] list = new int[objects.size()];
+		int i = 0;
+		for(Object object : objects) {
+			list[i++] = counts.get(object);
+		}
+		return list;
+	}
+	
+	public int[] upsertAll(String tableName, Collection<?> objects) {
+		if (objects.isEmpty()) {
+			return new int[0];
+		}
+		try {
+			UpdateHelper upsertHelper = getUpsertHelper(tableName, objects.iterator().next().getClass());
+			return upsertHelper.updateAll(connection, statementCache, typeConverter, objects, batchSize);
+		} catch(DBMapperException e) {
+			throw e;
+		} catch(Exception e) {
+			throw new DBMapperException(e);
+		} finally {
+			invalidateAll(tableName, objects);
+		}
+	}
+	
+	private UpdateHelper getUpsertHelper(String tableName, Class<?> clazz) throws Exception {
+		TableHelper tableHelper = databaseHelper.getTableHelper(connection, tableName);
+		UpdateHelper upsertHelper = tableHelper.getUpsertHelper(clazz, getDialect());
+		if (upsertHelper == null) {
+			upsertHelper = createUpsertHelper(tableHelper, reflectionHelper.getClassHelper(clazz));
+			tableHelper.setUpsertHelper(clazz, getDialect(), upsertHelper);
+		}
+		return upsertHelper;
+	}
+	
+	// every mapped column is written, keys included, so one statement covers every object of the class in
+	// the table.  its parameters are bound in column order, which DefaultUpdateHelper does when given
+	// no separate key getters.
+	protected UpdateHelper createUpsertHelper(TableHelper tableHelper, ClassHelper classHelper) throws Exception {
+		List<String> columns = new ArrayList<>(), keyColumns = new ArrayList<>();
+		List<Getter> getters = new ArrayList<>();
+		for(Column column : tableHelper.getColumns()) {
+			Getter getter = classHelper.getGetterForProperty(column.getPropertyName());
+			if (getter == null) {
+				if (column.isPrimaryKey()) {
+					throw new DBMapperException("Couldn't locate getter for key column ['" + column.getName() + "']");
+				}
+				continue;
+			}
+			columns.add(column.getName());
+			getters.add(getter);
+			if (column.isPrimaryKey()) {
+				keyColumns.add(column.getName());
+			}
+		}
+		
+		if (keyColumns.isEmpty()) {
+			throw new DBMapperException("There doesn't appear to be any primary key columns to identify records to upsert");
+		}
+		
+		String sql = getDialect().getUpsertSql(tableHelper.getTableName(), columns, keyColumns);
+		return new DefaultUpdateHelper(sql, classHelper, getters, new ArrayList<>(), mappingEngine);
+	}
+	
+	public void delete(Object object) {
+		delete(getTableName(object.getClass()), object);
+	}
+	
+	public void delete(String tableName, Object object) {
+		try {
+			getDeleteHelper(tableName, object.getClass()).delete(connection, statementCache, typeConverter, object);
+		} catch(DBMapperException e) {
+			throw e;
+		} catch(Exception e) {
+			throw new DBMapperException(e);
+		} finally {
+			invalidate(tableName, object);
+		}
+	}
+	
+	public int deleteAll(Collection<?> objects) {
+		int count = 0;
+		for(Map.Entry<String, List<Object>> entry : groupByTable(objects).entrySet()) {
+			count += deleteAll(entry.getKey(), entry.getValue());
+		}
+		return count;
+	}
+	
+	public int deleteAll(String tableName, Collection<?> objects) {
+		if (objects.isEmpty()) {
+			return 0;
+		}
+		try {
+			DeleteHelper deleteHelper = getDeleteHelper(tableName, objects.iterator().next().getClass());
+			return deleteHelper.deleteAll(connection, statementCache, typeConverter, objects, batchSize, getDialect().getMaxParameters(), 
+				getDialect().getMaxInListSize());
+		} catch(DBMapperException e) {
+			throw e;
 		} catch(Exception e) {
 			throw new DBMapperException(e);
+		} finally {
+			invalidateAll(tableName, objects);
 		}
 	}
 	
+	private DeleteHelper getDeleteHelper(String tableName, Class<?> clazz) throws Exception {
+		TableHelper tableHelper = databaseHelper.getTableHelper(connection, tableName);
+		DeleteHelper deleteHelper = tableHelper.getDeleteHelper(clazz);
+		if (deleteHelper == null) {
+			deleteHelper = createDeleteHelper(tableHelper, reflectionHelper.getClassHelper(clazz));
+			tableHelper.setDeleteHelper(clazz, deleteHelper);
+		}
+		return deleteHelper;
+	}
+	
+	protected DeleteHelper createDeleteHelper(TableHelper tableHelper, ClassHelper classHelper) throws Exception {
+		List<String> keyColumns = new ArrayList<>();
+		List<Getter> keyGetters = new ArrayList<>();
+		for(Column column : tableHelper.getPrimaryKeyColumns()) {
+			Getter getter = classHelper.getGetterForProperty(column.getPropertyName());
+			if (getter == null) {
+				throw new DBMapperException("Couldn't locate getter for key column ['" + column.getName() + "']");
+			}
+			keyColumns.add(column.getName());
+			keyGetters.add(getter);
+		}
+		
+		if (keyColumns.isEmpty()) {
+			throw new DBMapperException("There doesn't appear to be any primary key columns to identify records to delete");
+		}
+		return new DeleteHelper(tableHelper.getTableName(), classHelper, keyColumns, keyGetters, mappingEngine);
+	}
+	
 	protected UpdateHelper createUpdateHelper(TableHelper tableHelper, ClassHelper classHelper) throws Exception {			
 		try (AutoCloseables closeables = new AutoCloseables()) {			
 			List<String> setColumns = new ArrayList<>(), keyColumns = new ArrayList<>();
@@ -160,26 +665,250 @@ public class DefaultDBMapper implements DBMapper {
 			b.append(" WHERE ").append(StringUtils.join(keyColumns, "=? AND ")).append("=?");			
 			String sql = b.toString();
 			System.out.println(sql);
-			return new DefaultUpdateHelper(sql, setGetters, keyGetters);			
+			return new DefaultUpdateHelper(sql, classHelper, setGetters, keyGetters, mappingEngine);			
 		}
 	}
 	
-	public <T> T buildSingle(Class<T> clazz, ResultSet rs) {
+	public <T> T findById(Class<T> clazz, Object... key) {
+		try {
+			if (entityCache == null) {
+				return getFindHelper(clazz).findById(connection, statementCache, typeConverter, key);
+			}
+			String tableName = getTableName(clazz);
+			Object cached = entityCache.get(tableName, key);
+			if (clazz.isInstance(cached)) {
+				return clazz.cast(cached);
+			}
+			long generation = entityCache.getGeneration(tableName);
+			T entity = getFindHelper(clazz).findById(connection, statementCache, typeConverter, key);
+			if ((entity != null) && isCommitted()) {
+				entityCache.put(tableName, generation, entity, key);
+			}
+			return entity;
+		} catch(DBMapperException e) {
+			throw e;
+		} catch(Exception e) {
+			throw new DBMapperException(e);
+		}
+	}
+	
+	public <T> List<T> findByIds(Class<T> clazz, Collection<?> keys) {
+		if (keys.isEmpty()) {
+			return new ArrayList<>();
+		}
 		try {
-			T object = clazz.newInstance();
+			FindHelper findHelper = getFindHelper(clazz);
+			int maxParameters = Math.max(1, Math.min(batchSize, getDialect().getMaxParameters()));
+			int maxInListSize = getDialect().getMaxInListSize();
+			if (entityCache == null) {
+				return findHelper.findByIds(connection, statementCache, typeConverter, keys, maxParameters, maxInListSize);
+			}
 			
-			ResultSetMetaData rsmd = rs.getMetaData();
-			int cc = rsmd.getColumnCount();
-			for(int i = 1; i <= cc; i++) {
-				String columnName = rsmd.getColumnName(i);
-				String setterName = toMethodName("set", columnName);
-				Class<?> targetType = reflectionHelper.getSetterTypeIfExists(clazz, setterName);
-				if (targetType != null) {
-					Object value = typeConverter.getValue(rs, columnName, targetType);
-					reflectionHelper.invokeSetterIfExists(object, setterName, value);
+			// only the keys that aren't cached are selected, and what they return is cached
+			String tableName = getTableName(clazz);
+			List<T> list = new ArrayList<>();
+			List<Object> missing = new ArrayList<>();
+			for(Object key : keys) {
+				Object cached = entityCache.get(tableName, toKey(key));
+				if (clazz.isInstance(cached)) {
+					list.add(clazz.cast(cached));
+				} else {
+					missing.add(key);
+				}
+			}
+			if (!missing.isEmpty()) {
+				List<Getter> keyGetters = isCommitted()?getKeyGetters(tableName, clazz):null;
+				long generation = entityCache.getGeneration(tableName);
+				for(T entity : findHelper.<T>findByIds(connection, statementCache, typeConverter, missing, maxParameters, maxInListSize)) {
+					if (keyGetters != null) {
+						entityCache.put(tableName, generation, entity, getKey(keyGetters, entity));
+					}
+					list.add(entity);
 				}
 			}
-			return object;
+			return list;
+		} catch(DBMapperException e) {
+			throw e;
+		} catch(Exception e) {
+			throw new DBMapperException(e);
+		}
+	}
+	
+	// inside a transaction a row may hold writes that aren't committed yet, or may never be,
+	// so it isn't shared with other connections through the cache
+	private boolean isCommitted() {
+		try {
+			return connection.getAutoCommit();
+		} catch(SQLException e) {
+			return false;
+		}
+	}
+	
+	private static Object[] toKey(Object key) {
+		return (key instanceof Object[])?(Object[])key:(key instanceof List)?((List<?>)key).toArray():new Object[] {key};
+	}
+	
+	private static Object[] getKey(List<Getter> keyGetters, Object object) throws Exception {
+		Object[] key = new Object[keyGetters.size()];
+		for(int i = 0; i < key.length; i++) {
+			key[i] = keyGetters.get(i).getValue(object);
+		}
+		return key;
+	}
+	
+	// null if some key column has no getter
+	private List<Getter> getKeyGetters(String tableName, Class<?> clazz) {
+		ClassHelper classHelper = reflectionHelper.getClassHelper(clazz);
+		List<Getter> keyGetters = new ArrayList<>();
+		for(Column column : databaseHelper.getTableHelper(connection, tableName).getPrimaryKeyColumns()) {
+			Getter getter = classHelper.getGetterForProperty(column.getPropertyName());
+			if (getter == null) {
+				return null;
+			}
+			keyGetters.add(getter);
+		}
+		return keyGetters.isEmpty()?null:keyGetters;
+	}
+	
+	private void invalidate(String tableName, Object object) {
+		invalidateAll(tableName, Collections.singletonList(object));
+	}
+	
+	// when keys can't be read, the whole table is dropped rather than risk serving stale rows
+	private void invalidateAll(String tableName, Collection<?> objects) {
+		if (!isCommitted()) {
+			// the caches are told again once the transaction ends, and don't fill the table until then
+			if (pendingTables.add(tableName)) {
+				if (queryCache != null) {
+					queryCache.beginWrite(tableName);
+				}
+				if (entityCache != null) {
+					entityCache.beginWrite(tableName);
+				}
+			}
+			return;
+		}
+		if (queryCache != null) {
+			queryCache.invalidate(tableName);
+		}
+		if (entityCache == null) {
+			return;
+		}
+		try {
+			for(Object object : objects) {
+				List<Getter> keyGetters = getKeyGetters(tableName, object.getClass());
+				if (keyGetters == null) {
+					entityCache.invalidateAll(tableName);
+					return;
+				}
+				entityCache.invalidate(tableName, getKey(keyGetters, object));
+			}
+		} catch(Exception e) {
+			entityCache.invalidateAll(tableName);
+		}
+	}
+	
+	private FindHelper getFindHelper(Class<?> clazz) throws Exception {
+		TableHelper tableHelper = databaseHelper.getTableHelper(connection, getTableName(clazz));
+		FindHelper findHelper = tableHelper.getFindHelper(clazz);
+		if (findHelper == null) {
+			findHelper = createFindHelper(tableHelper, reflectionHelper.getClassHelper(clazz));
+			tableHelper.setFindHelper(clazz, findHelper);
+		}
+		return findHelper;
+	}
+	
+	protected FindHelper createFindHelper(TableHelper tableHelper, ClassHelper classHelper) throws Exception {
+		List<String> columns = new ArrayList<>(), keyColumns = new ArrayList<>();
+		for(Column column : tableHelper.getColumns()) {
+			if (classHelper.getSetterForProperty(column.getPropertyName()) != null) {
+				columns.add(column.getName());
+			}
+			if (column.isPrimaryKey()) {
+				keyColumns.add(column.getName());
+			}
+		}
+		
+		if (columns.isEmpty()) {
+			throw new DBMapperException("There doesn't appear to be any columns to select");
+		}
+		if (keyColumns.isEmpty()) {
+			throw new DBMapperException("There doesn't appear to be any primary key columns to identify records to select");
+		}
+		return new FindHelper(tableHelper.getTableName(), classHelper, columns, keyColumns, mappingEngine);
+	}
+	
+	public <T> TableScan<T> scan(Class<T> clazz, int pageSize) {
+		return scan(getTableName(clazz), clazz, pageSize);
+	}
+	
+	public <T> TableScan<T> scan(String tableName, Class<T> clazz, int pageSize) {
+		return scan(tableName, clazz, pageSize, null, null);
+	}
+	
+	public <T> TableScan<T> scan(String tableName, Class<T> clazz, int pageSize, Object after, Object upTo) {
+		return getScanHelper(tableName, clazz).scan(connection, statementCache, typeConverter, getDialect(), pageSize, 
+			(after == null)?null:new Object[] {after}, upTo);
+	}
+	
+	private ScanHelper getScanHelper(String tableName, Class<?> clazz) {
+		try {
+			TableHelper tableHelper = databaseHelper.getTableHelper(connection, tableName);
+			ScanHelper scanHelper = tableHelper.getScanHelper(clazz);
+			if (scanHelper == null) {
+				scanHelper = createScanHelper(tableHelper, reflectionHelper.getClassHelper(clazz));
+				tableHelper.setScanHelper(clazz, scanHelper);
+			}
+			return scanHelper;
+		} catch(DBMapperException e) {
+			throw e;
+		} catch(Exception e) {
+			throw new DBMapperException(e);
+		}
+	}
+	
+	// the key columns are always selected, mapped or not, since each page starts from the last key
+	protected ScanHelper createScanHelper(TableHelper tableHelper, ClassHelper classHelper) throws Exception {
+		List<String> columns = new ArrayList<>(), keyColumns = new ArrayList<>();
+		for(Column column : tableHelper.getColumns()) {
+			if (column.isPrimaryKey() || (classHelper.getSetterForProperty(column.getPropertyName()) != null)) {
+				columns.add(column.getName());
+			}
+			if (column.isPrimaryKey()) {
+				keyColumns.add(column.getName());
+			}
+		}
+		
+		if (keyColumns.isEmpty()) {
+			throw new DBMapperException("There doesn't appear to be any primary key columns to page through " + tableHelper.getTableName() + " by");
+		}
+		return new ScanHelper(tableHelper.getTableName(), classHelper, columns, keyColumns, mappingEngine);
+	}
+	
+	public <T> List<T> query(Class<T> clazz, String sql, Object... params) {
+		try (AutoCloseables closeables = new AutoCloseables()) {
+			PreparedStatement ps = StatementCache.prepare(connection, statementCache, closeables, sql, false);
+			for(int i = 0; i < params.length; i++) {
+				typeConverter.setValue(ps, i + 1, params[i]);
+			}
+			return buildList(clazz, closeables.add(ps.executeQuery()));
+		} catch(DBMapperException e) {
+			throw e;
+		} catch(Exception e) {
+			throw new DBMapperException(e);
+		}
+	}
+	
+	public <T> List<T> query(Class<T> clazz, Collection<String> tables, String sql, Object... params) {
+		if ((queryCache == null) || !isCommitted()) {
+			return query(clazz, sql, params);
+		}
+		return queryCache.get(clazz, sql, params, tables, () -> query(clazz, sql, params));
+	}
+	
+	public <T> T buildSingle(Class<T> clazz, ResultSet rs) {
+		try {
+			return getRowMapper(clazz, rs).map(rs);
 		} catch(Exception e) {
 			throw new DBMapperException(e);
 		}
@@ -187,12 +916,15 @@ public class DefaultDBMapper implements DBMapper {
 
 	public <T> List<T> buildList(Class<T> clazz, ResultSet rs) {
 		try {
+			// the column shape can't change between rows, so resolve the plan once up front
+			RowMapper<T> rowMapper = getRowMapper(clazz, rs);
 			List<T> list = new ArrayList<>();
+			if (mappingPipeline != null) {
+				mappingPipeline.forEach(rs, rowMapper, list::add);
+				return list;
+			}
 			while(rs.next()) {
-				T t = buildSingle(clazz, rs);
-				if (t != null) {
-					list.add(t);
-				}
+				list.add(rowMapper.map(rs));
 			}
 			return list;
 		} catch(DBMapperException e) {
@@ -202,11 +934,176 @@ public class DefaultDBMapper implements DBMapper {
 		}
 	}
 	
-	private Object getValue(Object object, String propertyName) throws Exception {
-		return reflectionHelper.invokeGetterIfExistsForProperty(object, propertyName);
+	public ColumnBatch buildColumns(ResultSet rs) {
+		return buildColumns(rs, Collections.emptyMap());
+	}
+	
+	public ColumnBatch buildColumns(ResultSet rs, Map<String, Class<?>> types) {
+		try {
+			return ColumnBatch.read(rs, typeConverter, types);
+		} catch(DBMapperException e) {
+			throw e;
+		} catch(Exception e) {
+			throw new DBMapperException(e);
+		}
+	}
+	
+	public <P> List<P> buildList(OneToMany<P, ?> relation, ResultSet rs) {
+		List<P> list = new ArrayList<>();
+		forEach(relation, rs, list::add);
+		return list;
+	}
+	
+	public <P> void forEach(OneToMany<P, ?> relation, ResultSet rs, Consumer<? super P> consumer) {
+		try {
+			getOneToManyMapper(relation, rs).forEach(rs, consumer);
+		} catch(DBMapperException e) {
+			throw e;
+		} catch(Exception e) {
+			throw new DBMapperException(e);
+		}
+	}
+	
+	protected <P, C> OneToManyMapper<P, C> getOneToManyMapper(OneToMany<P, C> relation, ResultSet rs) throws Exception {
+		List<String> childKeyColumns = relation.getChildKeyColumns();
+		if (childKeyColumns.isEmpty()) {
+			childKeyColumns = new ArrayList<>();
+			for(Column column : databaseHelper.getTableHelper(connection, getTableName(relation.getChildClass())).getPrimaryKeyColumns()) {
+				childKeyColumns.add(column.getName());
+			}
+		}
+		return new OneToManyMapper<>(relation, childKeyColumns, reflectionHelper.getClassHelper(relation.getParentClass()), 
+			reflectionHelper.getClassHelper(relation.getChildClass()), rs.getMetaData(), typeConverter, mappingEngine);
+	}
+	
+	public <T> EntityIndex<T> buildIndex(Class<T> clazz, ResultSet rs) {
+		return buildIndex(getTableName(clazz), clazz, rs);
+	}
+	
+	// the key is read from the result set rather than the entity, so it must select the primary key columns
+	public <T> EntityIndex<T> buildIndex(String tableName, Class<T> clazz, ResultSet rs) {
+		try {
+			List<Column> keyColumns = databaseHelper.getTableHelper(connection, tableName).getPrimaryKeyColumns();
+			if (keyColumns.isEmpty()) {
+				throw new DBMapperException("Table " + tableName + " has no primary key");
+			}
+			ResultSetMetaData rsmd = rs.getMetaData();
+			int[] keyIndexes = new int[keyColumns.size()];
+			for(int i = 0; i < keyIndexes.length; i++) {
+				for(int j = rsmd.getColumnCount(); j >= 1; j--) {
+					if (rsmd.getColumnLabel(j).equalsIgnoreCase(keyColumns.get(i).getName())) {
+						keyIndexes[i] = j;
+					}
+				}
+				if (keyIndexes[i] == 0) {
+					throw new DBMapperException("Primary key column " + keyColumns.get(i).getName() + " is not in the result");
+				}
+			}
+			int keyType = rsmd.getColumnType(keyIndexes[0]);
+			boolean integral = (keyType == Types.BIGINT) || (keyType == Types.INTEGER) || (keyType == Types.SMALLINT) 
+				|| (keyType == Types.TINYINT);
+			return EntityIndex.build(rs, getRowMapper(clazz, rs), keyIndexes, integral);
+		} catch(DBMapperException e) {
+			throw e;
+		} catch(Exception e) {
+			throw new DBMapperException(e);
+		}
 	}
+	
+	// with reuse, one instance is refilled for every row, so the consumer mustn't hold on to it.
+	// an engine whose mappers can't refill still gets a new instance per row.
+	public <T> void forEach(Class<T> clazz, ResultSet rs, Consumer<? super T> consumer, boolean reuse) {
+		try {
+			RowMapper<T> rowMapper = getRowMapper(clazz, rs);
+			reuse = reuse && rowMapper.canRefill();
+			if (!reuse && (mappingPipeline != null)) {
+				mappingPipeline.forEach(rs, rowMapper, consumer);
+				return;
+			} else if (!reuse) {
+				while(rs.next()) {
+					consumer.accept(rowMapper.map(rs));
+				}
+				return;
+			}
 			
-	private static String toMethodName(String prefix, String columnName) {
-		return prefix + StringUtils.capitalize(StringUtils.fromUnderscoresToCamelCase(columnName));
+			ClassHelper classHelper = reflectionHelper.getClassHelper(clazz);
+			ResultSetMetaData rsmd = rs.getMetaData();
+			String[] columnNames = new String[rsmd.getColumnCount()];
+			for(int i = 0; i < columnNames.length; i++) {
+				columnNames[i] = rsmd.getColumnName(i + 1);
+			}
+			PropertyResetter resetter = new PropertyResetter(classHelper, columnNames);
+			T object = clazz.cast(classHelper.newInstance());
+			while(rs.next()) {
+				resetter.reset(object);
+				consumer.accept(rowMapper.map(rs, object));
+			}
+		} catch(DBMapperException e) {
+			throw e;
+		} catch(Exception e) {
+			throw new DBMapperException(e);
+		}
+	}
+	
+	public <T> Stream<T> stream(Class<T> clazz, ResultSet rs) {
+		return iterator(clazz, rs).stream();
+	}
+	
+	public <T> Stream<T> stream(Class<T> clazz, String sql, Object... params) {
+		return iterator(clazz, sql, params).stream();
+	}
+	
+	public <T> RowIterator<T> iterator(Class<T> clazz, ResultSet rs) {
+		AutoCloseables closeables = new AutoCloseables();
+		closeables.add(rs);
+		return iterator(clazz, rs, closeables);
+	}
+	
+	public <T> RowIterator<T> iterator(Class<T> clazz, String sql, Object... params) {
+		AutoCloseables closeables = new AutoCloseables();
+		try {
+			PreparedStatement ps = StatementCache.prepare(connection, statementCache, closeables, sql, false);
+			if (fetchSize > 0) {
+				ps.setFetchSize(fetchSize);
+			}
+			for(int i = 0; i < params.length; i++) {
+				typeConverter.setValue(ps, i + 1, params[i]);
+			}
+			return iterator(clazz, closeables.add(ps.executeQuery()), closeables);
+		} catch(Exception e) {
+			closeables.close();
+			throw (e instanceof DBMapperException)?(DBMapperException)e:new DBMapperException(e);
+		}
+	}
+	
+	private <T> RowIterator<T> iterator(Class<T> clazz, ResultSet rs, AutoCloseables closeables) {
+		try {
+			if (fetchSize > 0) {
+				rs.setFetchSize(fetchSize);
+			}
+			return new RowIterator<>(rs, getRowMapper(clazz, rs), closeables);
+		} catch(Exception e) {
+			closeables.close();
+			throw (e instanceof DBMapperException)?(DBMapperException)e:new DBMapperException(e);
+		}
+	}
+	
+	protected <T> RowMapper<T> getRowMapper(Class<T> clazz, ResultSet rs) throws Exception {
+		return reflectionHelper.getClassHelper(clazz).getRowMapper(rs.getMetaData(), typeConverter, mappingEngine);
+	}
+	
+	private static class InsertBatch {
+		InsertPlan plan;
+		Setter generatedKeySetter;
+		Binder binder;
+		PreparedStatement ps;
+		List<Object> objects = new ArrayList<>();
+		List<Integer> positions = new ArrayList<>();
+		
+		InsertBatch(InsertPlan plan, Setter generatedKeySetter, Binder binder) {
+			this.plan = plan;
+			this.generatedKeySetter = generatedKeySetter;
+			this.binder = binder;
+		}
 	}
 }
\ No newline at end of file
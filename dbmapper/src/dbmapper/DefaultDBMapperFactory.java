@@ -16,14 +16,74 @@ package dbmapper;
 
 import java.sql.Connection;
 
+import dbmapper.util.DefaultMappingEngine;
+import dbmapper.util.MappingEngine;
+
 public class DefaultDBMapperFactory implements DBMapperFactory {
 	private static TypeConverter typeConverter = new DefaultTypeConverter();
+	private static MappingEngine mappingEngine = new DefaultMappingEngine();
+	private static int batchSize = 1000;
+	private static boolean multiRowInsert;
+	private static EntityCache entityCache;
+	private static QueryCache queryCache;
+	private static int statementCacheSize;
+	private static int fetchSize;
+	private static MappingPipeline mappingPipeline;
 	
 	public static void setTypeConverter(TypeConverter typeConverter) {
 		DefaultDBMapperFactory.typeConverter = typeConverter;
 	}
 	
+	/** Use new CompilingMappingEngine() to generate a dedicated mapper class per entity and column layout. */
+	public static void setMappingEngine(MappingEngine mappingEngine) {
+		DefaultDBMapperFactory.mappingEngine = mappingEngine;
+	}
+	
+	/** The number of rows sent per executeBatch by the *All methods. */
+	public static void setBatchSize(int batchSize) {
+		DefaultDBMapperFactory.batchSize = batchSize;
+	}
+	
+	/** Have insertAll send multi-row INSERT ... VALUES statements instead of JDBC batches. */
+	public static void setMultiRowInsert(boolean multiRowInsert) {
+		DefaultDBMapperFactory.multiRowInsert = multiRowInsert;
+	}
+	
+	/** A cache shared by every mapper the factory creates, see DefaultDBMapper.setEntityCache. */
+	public static void setEntityCache(EntityCache entityCache) {
+		DefaultDBMapperFactory.entityCache = entityCache;
+	}
+	
+	/** A cache shared by every mapper the factory creates, see DefaultDBMapper.setQueryCache. */
+	public static void setQueryCache(QueryCache queryCache) {
+		DefaultDBMapperFactory.queryCache = queryCache;
+	}
+	
+	/** Idle prepared statements each mapper keeps open for its connection, see DefaultDBMapper.setStatementCacheSize.
+	 * The DefaultDBMapper it returns must then be closed when done with, or the statements stay open on the connection. */
+	public static void setStatementCacheSize(int statementCacheSize) {
+		DefaultDBMapperFactory.statementCacheSize = statementCacheSize;
+	}
+	
+	/** The fetch size hint for streamed and iterated results, 0 for the driver's default. */
+	public static void setFetchSize(int fetchSize) {
+		DefaultDBMapperFactory.fetchSize = fetchSize;
+	}
+	
+	/** A pipeline shared by every mapper the factory creates, see DefaultDBMapper.setMappingPipeline. */
+	public static void setMappingPipeline(MappingPipeline mappingPipeline) {
+		DefaultDBMapperFactory.mappingPipeline = mappingPipeline;
+	}
+	
 	public DBMapper getDBMapperInstance(Connection connection) {
-		return new DefaultDBMapper(connection, typeConverter);
+		DefaultDBMapper mapper = new DefaultDBMapper(connection, typeConverter, mappingEngine);
+		mapper.setBatchSize(batchSize);
+		mapper.setMultiRowInsert(multiRowInsert);
+		mapper.setEntityCache(entityCache);
+		mapper.setQueryCache(queryCache);
+		mapper.setStatementCacheSize(statementCacheSize);
+		mapper.setFetchSize(fetchSize);
+		mapper.setMappingPipeline(mappingPipeline);
+		return mapper;
 	}	
 }
\ No newline at end of file
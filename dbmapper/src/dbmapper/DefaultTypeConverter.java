@@ -14,6 +14,7 @@ package dbmapper;
  * limitations under the License.
  */
 
+import java.lang.reflect.Modifier;
 import java.math.BigDecimal;
 import java.sql.Date;
 import java.sql.PreparedStatement;
@@ -39,44 +40,44 @@ public class DefaultTypeConverter implements TypeConverter {
 	private Map<Class<?>, ExactTypeConverter<?>> map = new HashMap<>();
 
 	public DefaultTypeConverter() {
-		put(Boolean.class, boolean.class, (rs, cname)->{return rs.getBoolean(cname);}, (ps, i, value)->{ps.setBoolean(i, value);});
-		put(Byte.class, byte.class, (rs, cname)->{return rs.getByte(cname);}, (ps, i, value)->{ps.setByte(i, value);});
-		put(Short.class, short.class, (rs, cname)->{return rs.getShort(cname);}, (ps, i, value)->{ps.setShort(i, value);});
-		put(Integer.class, int.class, (rs, cname)->{return rs.getInt(cname);}, (ps, i, value)->{ps.setInt(i, value);});
-		put(Long.class, long.class, (rs, cname)->{return rs.getLong(cname);}, (ps, i, value)->{ps.setLong(i, value);});
+		putIndexed(Boolean.class, boolean.class, (rs, i)->{return rs.getBoolean(i);}, (ps, i, value)->{ps.setBoolean(i, value);});
+		putIndexed(Byte.class, byte.class, (rs, i)->{return rs.getByte(i);}, (ps, i, value)->{ps.setByte(i, value);});
+		putIndexed(Short.class, short.class, (rs, i)->{return rs.getShort(i);}, (ps, i, value)->{ps.setShort(i, value);});
+		put(Integer.class, int.class, PrimitiveTypeConverter.INT);
+		put(Long.class, long.class, PrimitiveTypeConverter.LONG);
 
-		put(Float.class, float.class, (rs, cname)->{return rs.getFloat(cname);}, (ps, i, value)->{ps.setFloat(i, value);});
-		put(Double.class, double.class, (rs, cname)->{return rs.getDouble(cname);}, (ps, i, value)->{ps.setDouble(i, value);});
-		put(BigDecimal.class, (rs, cname)->{return rs.getBigDecimal(cname);}, (ps, i, value)->{ps.setBigDecimal(i, value);});
+		putIndexed(Float.class, float.class, (rs, i)->{return rs.getFloat(i);}, (ps, i, value)->{ps.setFloat(i, value);});
+		put(Double.class, double.class, PrimitiveTypeConverter.DOUBLE);
+		putIndexed(BigDecimal.class, (rs, i)->{return rs.getBigDecimal(i);}, (ps, i, value)->{ps.setBigDecimal(i, value);});
 			
-		put(String.class, (rs, cname)->{return rs.getString(cname);}, (ps, i, value)->{ps.setString(i, value);});
+		putIndexed(String.class, (rs, i)->{return rs.getString(i);}, (ps, i, value)->{ps.setString(i, value);});
 
-		put(byte[].class, (rs, cname)->{return rs.getBytes(cname);}, (ps, i, value)->{ps.setBytes(i, value);});
+		putIndexed(byte[].class, (rs, i)->{return rs.getBytes(i);}, (ps, i, value)->{ps.setBytes(i, value);});
 
 		
-		put(LocalDateTime.class, (rs, cname)->{
-				Timestamp t = rs.getTimestamp(cname);
+		putIndexed(LocalDateTime.class, (rs, i)->{
+				Timestamp t = rs.getTimestamp(i);
 				return (t == null)?null:t.toLocalDateTime();	
 			}, 
 			(ps, i, value)->{ps.setTimestamp(i, Timestamp.valueOf(value));}
 		);
 
-		put(LocalDate.class, (rs, cname)->{
-				Date d = rs.getDate(cname);
+		putIndexed(LocalDate.class, (rs, i)->{
+				Date d = rs.getDate(i);
 				return (d == null)?null:d.toLocalDate();
 			}, 
 			(ps, i, value)->{ps.setDate(i, Date.valueOf(value));}
 		);
 		
-		put(LocalTime.class, (rs, cname)->{
-				Time t = rs.getTime(cname);
+		putIndexed(LocalTime.class, (rs, i)->{
+				Time t = rs.getTime(i);
 				return (t == null)?null:t.toLocalTime();	
 			}, 
 			(ps, i, value)->{ps.setTime(i, Time.valueOf(value));}
 		);
 		
-		put(OffsetDateTime.class, (rs, cname) -> {
-				Timestamp t = rs.getTimestamp(cname);
+		putIndexed(OffsetDateTime.class, (rs, i) -> {
+				Timestamp t = rs.getTimestamp(i);
 				if (t == null) return null;
 				LocalDateTime ldt = t.toLocalDateTime();
 				return OffsetDateTime.of(ldt, ZoneOffset.ofHours(-t.getTimezoneOffset()/60));
@@ -88,8 +89,8 @@ public class DefaultTypeConverter implements TypeConverter {
 			}
 		);
 		
-		put(ZonedDateTime.class, (rs, cname) -> {
-				Timestamp t = rs.getTimestamp(cname);
+		putIndexed(ZonedDateTime.class, (rs, i) -> {
+				Timestamp t = rs.getTimestamp(i);
 				if (t == null) return null;
 				LocalDateTime ldt = t.toLocalDateTime();
 				return OffsetDateTime.of(ldt, ZoneOffset.ofHours(-t.getTimezoneOffset()/60)).toZonedDateTime();
@@ -113,28 +114,70 @@ public class DefaultTypeConverter implements TypeConverter {
 		put(clazz2, new LambdaExactTypeConverter<T>(valueGetter, valueSetter));
 	}
 	
+	public <T> void putIndexed(Class<?> clazz, LambdaExactTypeConverter.IndexedValueGetter<T> valueGetter, 
+	LambdaExactTypeConverter.ValueSetter<T> valueSetter) {
+		put(clazz, LambdaExactTypeConverter.indexed(valueGetter, valueSetter));
+	}
+
+	public <T> void putIndexed(Class<?> clazz1, Class<?> clazz2, LambdaExactTypeConverter.IndexedValueGetter<T> valueGetter, 
+	LambdaExactTypeConverter.ValueSetter<T> valueSetter) {
+		put(clazz1, LambdaExactTypeConverter.indexed(valueGetter, valueSetter));
+		put(clazz2, LambdaExactTypeConverter.indexed(valueGetter, valueSetter));
+	}
+	
 	public <T> void put(Class<?> clazz, ExactTypeConverter<T> converter) {
 		map.put(clazz, converter);
 	}
 	
+	/** Returns the converter registered for exactly this class, or null. */
+	public ExactTypeConverter<?> get(Class<?> clazz) {
+		return map.get(clazz);
+	}
+	
+	public <T> void put(Class<?> clazz1, Class<?> clazz2, ExactTypeConverter<T> converter) {
+		map.put(clazz1, converter);
+		map.put(clazz2, converter);
+	}
+	
 	public Object getValue(ResultSet rs, String columnName, Class<?> targetType) throws Exception {
-		Object value = rs.getObject(columnName);
-		if (value == null) return null;
+		return getColumnReader(targetType).getValue(rs, rs.findColumn(columnName));
+	}
+	
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	public ColumnReader<?> getColumnReader(Class<?> targetType) {
 		if (targetType.isEnum()) {
-			String svalue = rs.getString(columnName);
-			if (StringUtils.isEmpty(svalue)) {
-				return null;
-			} else {
-				return Enum.valueOf((Class<? extends Enum>)targetType, svalue);
-			}
+			return (rs, columnIndex) -> {
+				String svalue = rs.getString(columnIndex);
+				if (StringUtils.isEmpty(svalue)) {
+					return null;
+				} else {
+					return Enum.valueOf((Class<? extends Enum>)targetType, svalue);
+				}
+			};
 		} else {
 			ExactTypeConverter<?> converter = map.get(targetType);
 			if (converter == null) {
-				throw new IllegalArgumentException("Don't know how to convert type '" + targetType.getName() + "'.");
+				// only complain once there is actually a value that needs converting
+				return (rs, columnIndex) -> {
+					if (rs.getObject(columnIndex) == null) return null;
+					throw new IllegalArgumentException("Don't know how to convert type '" + targetType.getName() + "'.");
+				};
 			} else {
-				return converter.getValue(rs, columnName);
+				return converter;
+			}
+		}
+	}
+	
+	// the converter for a declared type can only be used directly when every value is exactly
+	// that type, i.e. for primitives and final classes.  anything else dispatches on each value.
+	public ColumnWriter<?> getColumnWriter(Class<?> valueType) {
+		if (valueType.isPrimitive() || Modifier.isFinal(valueType.getModifiers())) {
+			ExactTypeConverter<?> converter = map.get(valueType);
+			if (converter != null) {
+				return converter;
 			}
 		}
+		return (ps, index, value) -> setValue(ps, index, value);
 	}
 	
 	public <T> void setValue(PreparedStatement ps, int index, T value) throws SQLException {
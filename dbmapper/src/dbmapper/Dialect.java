@@ -0,0 +1,171 @@
+package dbmapper;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import dbmapper.util.StringUtils;
+
+// the database specific limits and syntax the mapper needs to know about.  GENERIC uses
+// conservative limits and standard syntax.
+public enum Dialect {
+	POSTGRESQL(32767, Integer.MAX_VALUE, Integer.MAX_VALUE, true),
+	MYSQL(65535, Integer.MAX_VALUE, Integer.MAX_VALUE, true),
+	SQLSERVER(2100, 1000, Integer.MAX_VALUE, true),
+	// multi-row VALUES only arrived in 23c, so inserts stay on JDBC batches.  IN lists stop at 1000 (ORA-01795).
+	ORACLE(65535, Integer.MAX_VALUE, 1000, false),
+	H2(65535, Integer.MAX_VALUE, Integer.MAX_VALUE, true),
+	SQLITE(999, Integer.MAX_VALUE, Integer.MAX_VALUE, true),
+	DERBY(65535, Integer.MAX_VALUE, Integer.MAX_VALUE, true),
+	GENERIC(999, Integer.MAX_VALUE, 1000, true);
+
+	private int maxParameters;
+	private int maxValuesRows;
+	private int maxInListSize;
+	private boolean multiRowValues;
+
+	private Dialect(int maxParameters, int maxValuesRows, int maxInListSize, boolean multiRowValues) {
+		this.maxParameters = maxParameters;
+		this.maxValuesRows = maxValuesRows;
+		this.maxInListSize = maxInListSize;
+		this.multiRowValues = multiRowValues;
+	}
+
+	/** The most bind parameters a single statement can take. */
+	public int getMaxParameters() {
+		return maxParameters;
+	}
+
+	/** The most values a single IN (...) list can hold, whatever the parameter limit. */
+	public int getMaxInListSize() {
+		return maxInListSize;
+	}
+
+	/** Whether INSERT ... VALUES (...), (...) is supported. */
+	public boolean supportsMultiRowValues() {
+		return multiRowValues;
+	}
+
+	/** The most rows of columnCount parameters that fit in a single VALUES list, at least 1. */
+	public int getMaxValuesRows(int columnCount) {
+		return Math.max(1, Math.min(maxValuesRows, maxParameters / Math.max(1, columnCount)));
+	}
+
+	/** sql, which must end with its ORDER BY, limited to the first rows rows. */
+	public String limit(String sql, int rows) {
+		switch(this) {
+			case POSTGRESQL:
+			case MYSQL:
+			case H2:
+			case SQLITE:
+				return sql + " LIMIT " + rows;
+			case SQLSERVER:
+				return sql + " OFFSET 0 ROWS FETCH NEXT " + rows + " ROWS ONLY";
+			default:
+				return sql + " FETCH FIRST " + rows + " ROWS ONLY";
+		}
+	}
+	
+	/** Whether row values can be compared, as in (a, b) > (?, ?). */
+	public boolean supportsRowValueComparison() {
+		switch(this) {
+			case POSTGRESQL:
+			case MYSQL:
+			case H2:
+			case SQLITE:
+				return true;
+			default:
+				return false;
+		}
+	}
+	
+	/** An insert-or-update of one row binding columns in order, matching existing rows on keyColumns. 
+	 * Throws DBMapperException for DERBY, which has no such statement. */
+	public String getUpsertSql(String tableName, List<String> columns, List<String> keyColumns) {
+		if (this == DERBY) {
+			// derby's MERGE only takes a table or view as its source, so there's nothing to bind a row into
+			throw new DBMapperException("Upsert isn't supported for " + this + ", whose MERGE can't take its source row from parameters");
+		}
+		List<String> setColumns = new ArrayList<>(columns);
+		setColumns.removeAll(keyColumns);
+		String insert = "INSERT INTO " + tableName + " (" + StringUtils.join(columns, ", ") + ") VALUES (" 
+			+ StringUtils.repeat("?", columns.size(), ", ") + ")";
+		switch(this) {
+			case POSTGRESQL:
+			case SQLITE:
+				return insert + " ON CONFLICT (" + StringUtils.join(keyColumns, ", ") + ") " + (setColumns.isEmpty()?"DO NOTHING":
+					"DO UPDATE SET " + assignments(setColumns, "", "EXCLUDED.", ""));
+			case MYSQL:
+				// with nothing to update, assigning a key to itself still makes duplicates a no-op
+				return insert + " ON DUPLICATE KEY UPDATE " + (setColumns.isEmpty()?assignments(keyColumns.subList(0, 1), "", "", ""):
+					assignments(setColumns, "", "VALUES(", ")"));
+			case H2:
+				return "MERGE INTO " + tableName + " (" + StringUtils.join(columns, ", ") + ") KEY (" + StringUtils.join(keyColumns, ", ") 
+					+ ") VALUES (" + StringUtils.repeat("?", columns.size(), ", ") + ")";
+			default:
+				StringBuilder b = new StringBuilder("MERGE INTO ").append(tableName).append(" t USING ");
+				if (this == ORACLE) {
+					b.append("(SELECT ");
+					for(int i = 0; i < columns.size(); i++) {
+						b.append((i == 0)?"":", ").append("? ").append(columns.get(i));
+					}
+					b.append(" FROM dual) s");
+				} else {
+					b.append("(VALUES (").append(StringUtils.repeat("?", columns.size(), ", ")).append(")) AS s (");
+					b.append(StringUtils.join(columns, ", ")).append(")");
+				}
+				b.append(" ON (");
+				for(int i = 0; i < keyColumns.size(); i++) {
+					b.append((i == 0)?"":" AND ").append("t.").append(keyColumns.get(i)).append(" = s.").append(keyColumns.get(i));
+				}
+				b.append(")");
+				if (!setColumns.isEmpty()) {
+					b.append(" WHEN MATCHED THEN UPDATE SET ").append(assignments(setColumns, "t.", "s.", ""));
+				}
+				b.append(" WHEN NOT MATCHED THEN INSERT (").append(StringUtils.join(columns, ", ")).append(") VALUES (");
+				for(int i = 0; i < columns.size(); i++) {
+					b.append((i == 0)?"":", ").append("s.").append(columns.get(i));
+				}
+				b.append(")");
+				// sql server insists on MERGE being terminated
+				return b.append((this == SQLSERVER)?";":"").toString();
+		}
+	}
+	
+	private static String assignments(List<String> columns, String target, String prefix, String suffix) {
+		StringBuilder b = new StringBuilder();
+		for(String column : columns) {
+			b.append((b.length() == 0)?"":", ").append(target).append(column).append(" = ").append(prefix).append(column).append(suffix);
+		}
+		return b.toString();
+	}
+	
+	/** Pick the dialect from the connection's database product name, falling back to GENERIC. */
+	public static Dialect of(Connection connection) {
+		try {
+			String product = connection.getMetaData().getDatabaseProductName().toLowerCase();
+			if (product.contains("postgres")) return POSTGRESQL;
+			if (product.contains("mysql") || product.contains("mariadb")) return MYSQL;
+			if (product.contains("sql server")) return SQLSERVER;
+			if (product.contains("oracle")) return ORACLE;
+			if (product.contains("h2")) return H2;
+			if (product.contains("sqlite")) return SQLITE;
+			if (product.contains("derby")) return DERBY;
+		} catch(Exception e) {}
+		return GENERIC;
+	}
+}
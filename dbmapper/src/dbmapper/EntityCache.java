@@ -0,0 +1,271 @@
+package dbmapper;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+// a bounded cache of entities by (table, primary key) that findById/findByIds read through,
+// and that writes through the mapper invalidate.  entries are kept in LRU order, but a new
+// entry only displaces the least recently used one if it has been asked for more often,
+// going by a small count-min sketch of recent key frequencies (TinyLFU admission).  that
+// keeps one-off lookups from flushing out the hot reference rows.
+// every invalidation moves its table on a generation, and a row loaded under an older
+// generation isn't cached, so a lookup racing a write can't put back the row it replaced.
+// a table written inside a transaction isn't cached at all until the transaction ends, since
+// until then other connections still read the rows from before the write.
+// cached instances are shared between callers, so they should be treated as read-only.
+public class EntityCache {
+	private long maximumWeight;
+	private ToLongFunction<Object> weigher;
+	private long defaultTimeToLive;
+	private Map<String, Long> timeToLives = new HashMap<>();
+	private Map<String, Long> generations = new HashMap<>();
+	private Map<String, Integer> pendingWrites = new HashMap<>();
+	private LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private FrequencySketch sketch;
+	private long weight;
+	private long hits, misses, evictions;
+
+	/** A cache holding at most maximumSize entities. */
+	public EntityCache(int maximumSize) {
+		this(maximumSize, entity -> 1);
+	}
+
+	/** A cache holding entities up to a total weight, as given by weigher. */
+	public EntityCache(long maximumWeight, ToLongFunction<Object> weigher) {
+		this.maximumWeight = maximumWeight;
+		this.weigher = weigher;
+		this.sketch = new FrequencySketch((int)Math.min(maximumWeight, 1 << 20));
+	}
+
+	/** How long entries live when their table has no time to live of its own, 0 (the default) for no limit. */
+	public synchronized void setDefaultTimeToLive(long millis) {
+		this.defaultTimeToLive = millis;
+	}
+
+	public synchronized void setTimeToLive(String tableName, long millis) {
+		timeToLives.put(tableName, millis);
+	}
+
+	/** The cached entity, or null if there isn't one or it has expired. */
+	public synchronized Object get(String tableName, Object... key) {
+		Key k = new Key(tableName, key);
+		sketch.increment(k);
+		Entry entry = entries.get(k);
+		if ((entry != null) && (entry.expiresAt != 0) && (System.currentTimeMillis() > entry.expiresAt)) {
+			remove(k);
+			entry = null;
+		}
+		if (entry == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		return entry.entity;
+	}
+
+	public synchronized void put(String tableName, Object entity, Object... key) {
+		put(tableName, getGeneration(tableName), entity, key);
+	}
+
+	/** The table's current generation, to pass to put once the entity has been loaded. */
+	public synchronized long getGeneration(String tableName) {
+		Long generation = generations.get(tableName);
+		return (generation == null)?0:generation;
+	}
+
+	/** Cache the entity, unless the table has been invalidated since generation was read. */
+	public synchronized void put(String tableName, long generation, Object entity, Object[] key) {
+		if ((generation != getGeneration(tableName)) || pendingWrites.containsKey(tableName)) {
+			return;
+		}
+		Key k = new Key(tableName, key);
+		remove(k);
+		long w = weigher.applyAsLong(entity);
+		Long ttl = timeToLives.get(tableName);
+		ttl = (ttl == null)?defaultTimeToLive:ttl;
+		entries.put(k, new Entry(entity, w, (ttl > 0)?(System.currentTimeMillis() + ttl):0));
+		weight += w;
+
+		// the candidate competes with the least recently used entries until everything fits
+		while(weight > maximumWeight) {
+			Iterator<Map.Entry<Key, Entry>> i = entries.entrySet().iterator();
+			Key victim = i.next().getKey();
+			if ((victim != k) && (sketch.frequency(k) <= sketch.frequency(victim))) {
+				victim = k;
+			}
+			remove(victim);
+			evictions++;
+			if (victim == k) {
+				break;
+			}
+		}
+	}
+
+	/** Note a write to tableName by a transaction that hasn't ended, invalidating the table until endWrite. */
+	public synchronized void beginWrite(String tableName) {
+		pendingWrites.merge(tableName, 1, Integer::sum);
+		invalidateAll(tableName);
+	}
+
+	/** The transaction that called beginWrite has committed or rolled back. */
+	public synchronized void endWrite(String tableName) {
+		Integer pending = pendingWrites.get(tableName);
+		if ((pending == null) || (pending <= 1)) {
+			pendingWrites.remove(tableName);
+		} else {
+			pendingWrites.put(tableName, pending - 1);
+		}
+		// rows read while the transaction was open may be from before its commit
+		invalidateAll(tableName);
+	}
+
+	public synchronized void invalidate(String tableName, Object... key) {
+		generations.put(tableName, getGeneration(tableName) + 1);
+		remove(new Key(tableName, key));
+	}
+
+	public synchronized void invalidateAll(String tableName) {
+		generations.put(tableName, getGeneration(tableName) + 1);
+		for(Key k : new ArrayList<>(entries.keySet())) {
+			if (k.tableName.equals(tableName)) {
+				remove(k);
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		weight = 0;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	/** Entries dropped to stay within the maximum, including new entries that weren't admitted. */
+	public synchronized long getEvictionCount() {
+		return evictions;
+	}
+
+	private void remove(Key k) {
+		Entry entry = entries.remove(k);
+		if (entry != null) {
+			weight -= entry.weight;
+		}
+	}
+
+	private static class Key {
+		String tableName;
+		List<Object> key;
+		int hash;
+
+		// integral keys are compared as longs, so findById(Person.class, 1) matches a long id property
+		Key(String tableName, Object[] key) {
+			Object[] normalized = new Object[key.length];
+			for(int i = 0; i < key.length; i++) {
+				Object k = key[i];
+				normalized[i] = ((k instanceof Integer) || (k instanceof Short) || (k instanceof Byte))?(Object)((Number)k).longValue():k;
+			}
+			this.tableName = tableName;
+			this.key = Arrays.asList(normalized);
+			this.hash = 31 * tableName.hashCode() + this.key.hashCode();
+		}
+
+		public int hashCode() {
+			return hash;
+		}
+
+		public boolean equals(Object o) {
+			return (o instanceof Key) && ((Key)o).tableName.equals(tableName) && ((Key)o).key.equals(key);
+		}
+	}
+
+	private static class Entry {
+		Object entity;
+		long weight;
+		long expiresAt;
+		Entry(Object entity, long weight, long expiresAt) {
+			this.entity = entity;
+			this.weight = weight;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	// four rows of 4 bit counters, halved every 10 * width increments so old popularity fades
+	private static class FrequencySketch {
+		private byte[][] counts;
+		private int mask;
+		private int increments, resetAt;
+
+		FrequencySketch(int capacity) {
+			int width = Integer.highestOneBit(Math.max(16, capacity - 1) * 2);
+			counts = new byte[4][width];
+			mask = width - 1;
+			resetAt = 10 * width;
+		}
+
+		void increment(Object key) {
+			int h = spread(key.hashCode());
+			for(int i = 0; i < counts.length; i++) {
+				int index = index(h, i);
+				if (counts[i][index] < 15) {
+					counts[i][index]++;
+				}
+			}
+			if (++increments >= resetAt) {
+				for(byte[] row : counts) {
+					for(int i = 0; i < row.length; i++) {
+						row[i] >>= 1;
+					}
+				}
+				increments /= 2;
+			}
+		}
+
+		int frequency(Object key) {
+			int h = spread(key.hashCode()), frequency = 15;
+			for(int i = 0; i < counts.length; i++) {
+				frequency = Math.min(frequency, counts[i][index(h, i)]);
+			}
+			return frequency;
+		}
+
+		private int index(int h, int row) {
+			h = (h + row * 0x9E3779B9) * 0x85EBCA6B;
+			return (h ^ (h >>> 16)) & mask;
+		}
+
+		private static int spread(int h) {
+			h *= 0xCC9E2D51;
+			return h ^ (h >>> 17);
+		}
+	}
+}
@@ -0,0 +1,208 @@
+package dbmapper;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import dbmapper.util.RowMapper;
+
+// a read-only lookup of mapped rows by primary key.  a single integral key is held in an open
+// addressing table of primitive longs next to an array of entities, so there's no boxed key or
+// map entry per row.  any other key falls back to a HashMap keyed by the list of key values.
+// rows with a null key are left out, and a later row with the same key replaces an earlier one.
+public abstract class EntityIndex<T> {
+
+	/** The entity with the given primary key, in primary key column order, or null if there isn't one. */
+	public abstract T get(Object... key);
+
+	/** The number of entities. */
+	public abstract int size();
+
+	/** The entities, in no particular order. */
+	public abstract List<T> values();
+
+	public boolean containsKey(Object... key) {
+		return get(key) != null;
+	}
+
+	/** Map every remaining row of rs, keyed by the columns at keyIndexes.  integral says the only key column holds whole numbers. */
+	static <T> EntityIndex<T> build(ResultSet rs, RowMapper<T> rowMapper, int[] keyIndexes, boolean integral) throws Exception {
+		if ((keyIndexes.length == 1) && integral) {
+			OfLong<T> index = new OfLong<>();
+			int keyIndex = keyIndexes[0];
+			while(rs.next()) {
+				long key = rs.getLong(keyIndex);
+				if (!rs.wasNull()) {
+					index.put(key, rowMapper.map(rs));
+				}
+			}
+			return index;
+		}
+
+		OfKeys<T> index = new OfKeys<>(keyIndexes.length);
+		rows: while(rs.next()) {
+			Object[] key = new Object[keyIndexes.length];
+			for(int i = 0; i < key.length; i++) {
+				key[i] = rs.getObject(keyIndexes[i]);
+				if (key[i] == null) {
+					continue rows;
+				}
+			}
+			index.put(key, rowMapper.map(rs));
+		}
+		return index;
+	}
+
+	/** An index on a single whole number key, which can also be read without boxing. */
+	public static class OfLong<T> extends EntityIndex<T> {
+		private long[] keys = new long[16];
+		private Object[] entities = new Object[16];
+		private int size;
+
+		OfLong() {
+		}
+
+		/** The entity with the given key, or null if there isn't one. */
+		@SuppressWarnings("unchecked")
+		public T get(long key) {
+			int mask = keys.length - 1;
+			for(int i = hash(key) & mask; entities[i] != null; i = (i + 1) & mask) {
+				if (keys[i] == key) {
+					return (T)entities[i];
+				}
+			}
+			return null;
+		}
+
+		public T get(Object... key) {
+			if (key.length != 1) {
+				throw new DBMapperException("Expected 1 key value but got " + key.length);
+			}
+			return (key[0] instanceof Number)?get(((Number)key[0]).longValue()):null;
+		}
+
+		public boolean containsKey(long key) {
+			return get(key) != null;
+		}
+
+		public int size() {
+			return size;
+		}
+
+		@SuppressWarnings("unchecked")
+		public List<T> values() {
+			List<T> values = new ArrayList<>(size);
+			for(Object entity : entities) {
+				if (entity != null) {
+					values.add((T)entity);
+				}
+			}
+			return Collections.unmodifiableList(values);
+		}
+
+		// linear probing, an empty slot is one without an entity
+		private void put(long key, T entity) {
+			if (entity == null) {
+				return;
+			}
+			int mask = keys.length - 1;
+			int i = hash(key) & mask;
+			for(; entities[i] != null; i = (i + 1) & mask) {
+				if (keys[i] == key) {
+					entities[i] = entity;
+					return;
+				}
+			}
+			keys[i] = key;
+			entities[i] = entity;
+			// kept at most 3/4 full so misses find an empty slot quickly
+			if (++size * 4 > keys.length * 3) {
+				resize();
+			}
+		}
+
+		private void resize() {
+			long[] oldKeys = keys;
+			Object[] oldEntities = entities;
+			keys = new long[oldKeys.length * 2];
+			entities = new Object[oldKeys.length * 2];
+			int mask = keys.length - 1;
+			for(int j = 0; j < oldKeys.length; j++) {
+				if (oldEntities[j] != null) {
+					int i = hash(oldKeys[j]) & mask;
+					while(entities[i] != null) {
+						i = (i + 1) & mask;
+					}
+					keys[i] = oldKeys[j];
+					entities[i] = oldEntities[j];
+				}
+			}
+		}
+
+		// sequential ids would otherwise fill runs of neighbouring slots
+		private static int hash(long key) {
+			key ^= key >>> 33;
+			key *= 0xff51afd7ed558ccdL;
+			key ^= key >>> 33;
+			return (int)key;
+		}
+	}
+
+	// integral key values are compared as longs, so an int key finds a row read as a long
+	private static class OfKeys<T> extends EntityIndex<T> {
+		private int keyLength;
+		private Map<List<Object>, T> entities = new HashMap<>();
+
+		OfKeys(int keyLength) {
+			this.keyLength = keyLength;
+		}
+
+		public T get(Object... key) {
+			if (key.length != keyLength) {
+				throw new DBMapperException("Expected " + keyLength + " key values but got " + key.length);
+			}
+			return entities.get(normalize(key));
+		}
+
+		public int size() {
+			return entities.size();
+		}
+
+		public List<T> values() {
+			return Collections.unmodifiableList(new ArrayList<>(entities.values()));
+		}
+
+		private void put(Object[] key, T entity) {
+			if (entity != null) {
+				entities.put(normalize(key), entity);
+			}
+		}
+
+		private static List<Object> normalize(Object[] key) {
+			Object[] normalized = new Object[key.length];
+			for(int i = 0; i < key.length; i++) {
+				Object k = key[i];
+				normalized[i] = ((k instanceof Integer) || (k instanceof Short) || (k instanceof Byte))?(Object)((Number)k).longValue():k;
+			}
+			return Arrays.asList(normalized);
+		}
+	}
+}
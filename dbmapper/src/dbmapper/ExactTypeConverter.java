@@ -19,8 +19,18 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
 
-public interface ExactTypeConverter<T> {
+public interface ExactTypeConverter<T> extends ColumnReader<T>, ColumnWriter<T> {
 	public T getValue(ResultSet rs, String columnName) throws Exception;
+	
+	// adapter for converters that only know how to read by name.  those were only ever called
+	// for non-null values, so keep checking for null first.
+	public default T getValue(ResultSet rs, int columnIndex) throws Exception {
+		if (rs.getObject(columnIndex) == null) {
+			return null;
+		}
+		return getValue(rs, rs.getMetaData().getColumnName(columnIndex));
+	}
+	
 	public void setNonNullValue(PreparedStatement ps, int index, T value) throws SQLException;
 	public default void setValue(PreparedStatement ps, int index, T value) throws SQLException {
 		if (value == null) {
@@ -0,0 +1,156 @@
+package dbmapper;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+// reads and binds java.time values directly through the JDBC 4.2 getObject(int, Class) and
+// setObject(int, Object) methods, instead of going through the java.sql wrappers.  drivers that
+// don't report JDBC 4.2 (or reject the call as unsupported) fall back to the DefaultTypeConverter behaviour.
+// whether the driver supports it is remembered per converter, so use one instance per driver.
+public class Jdbc42TypeConverter extends DefaultTypeConverter {
+	private volatile Boolean supported;
+	
+	@SuppressWarnings("unchecked")
+	public Jdbc42TypeConverter() {
+		put(LocalDateTime.class, new JavaTimeConverter<>(LocalDateTime.class, (ExactTypeConverter<LocalDateTime>)get(LocalDateTime.class)));
+		put(LocalDate.class, new JavaTimeConverter<>(LocalDate.class, (ExactTypeConverter<LocalDate>)get(LocalDate.class)));
+		put(LocalTime.class, new JavaTimeConverter<>(LocalTime.class, (ExactTypeConverter<LocalTime>)get(LocalTime.class)));
+		
+		put(OffsetDateTime.class, new JavaTimeConverter<>(OffsetDateTime.class, LambdaExactTypeConverter.indexed(
+			(rs, i) -> {
+				Timestamp t = rs.getTimestamp(i);
+				return (t == null)?null:OffsetDateTime.ofInstant(t.toInstant(), ZoneId.systemDefault());
+			},
+			(ps, i, value) -> {ps.setTimestamp(i, Timestamp.from(value.toInstant()), newCalendar(value.getOffset()));}
+		)));
+		
+		// JDBC 4.2 only defines OffsetDateTime, so zoned values travel as one
+		put(ZonedDateTime.class, new ZonedDateTimeConverter((ExactTypeConverter<OffsetDateTime>)get(OffsetDateTime.class)));
+	}
+	
+	// drivers are free to change the calendar they're given, so no two binds share one
+	private static Calendar newCalendar(ZoneId zone) {
+		return Calendar.getInstance(TimeZone.getTimeZone(zone));
+	}
+	
+	private boolean isSupported(Statement statement) {
+		Boolean b = supported;
+		if (b == null) {
+			try {
+				Connection connection = (statement == null)?null:statement.getConnection();
+				if (connection == null) {
+					// e.g. buffered rows, which convert for themselves; the driver is asked another time
+					return true;
+				}
+				DatabaseMetaData dbmd = connection.getMetaData();
+				b = (dbmd.getJDBCMajorVersion() > 4) || ((dbmd.getJDBCMajorVersion() == 4) && (dbmd.getJDBCMinorVersion() >= 2));
+			} catch(SQLException | AbstractMethodError e) {
+				b = false;
+			}
+			supported = b;
+		}
+		return b;
+	}
+	
+	private class JavaTimeConverter<T> implements ExactTypeConverter<T> {
+		private Class<T> type;
+		private ExactTypeConverter<T> fallback;
+		
+		JavaTimeConverter(Class<T> type, ExactTypeConverter<T> fallback) {
+			this.type = type;
+			this.fallback = fallback;
+		}
+		
+		public T getValue(ResultSet rs, String columnName) throws Exception {
+			return getValue(rs, rs.findColumn(columnName));
+		}
+		
+		public T getValue(ResultSet rs, int columnIndex) throws Exception {
+			if (isSupported(rs.getStatement())) {
+				try {
+					return rs.getObject(columnIndex, type);
+				} catch(SQLFeatureNotSupportedException | AbstractMethodError e) {
+					// only give up on the driver if the old way works
+					T value = fallback.getValue(rs, columnIndex);
+					supported = false;
+					return value;
+				} catch(SQLException e) {
+					// e.g. a column type the driver won't convert, which says nothing about the others
+					return fallback.getValue(rs, columnIndex);
+				}
+			}
+			return fallback.getValue(rs, columnIndex);
+		}
+		
+		public void setNonNullValue(PreparedStatement ps, int index, T value) throws SQLException {
+			if (isSupported(ps)) {
+				try {
+					ps.setObject(index, value);
+					return;
+				} catch(SQLFeatureNotSupportedException | AbstractMethodError e) {
+					fallback.setNonNullValue(ps, index, value);
+					supported = false;
+					return;
+				} catch(SQLException e) {
+					fallback.setNonNullValue(ps, index, value);
+					return;
+				}
+			}
+			fallback.setNonNullValue(ps, index, value);
+		}
+	}
+	
+	private class ZonedDateTimeConverter implements ExactTypeConverter<ZonedDateTime> {
+		private ExactTypeConverter<OffsetDateTime> offsetDateTimeConverter;
+		
+		ZonedDateTimeConverter(ExactTypeConverter<OffsetDateTime> offsetDateTimeConverter) {
+			this.offsetDateTimeConverter = offsetDateTimeConverter;
+		}
+		
+		public ZonedDateTime getValue(ResultSet rs, String columnName) throws Exception {
+			return getValue(rs, rs.findColumn(columnName));
+		}
+		
+		public ZonedDateTime getValue(ResultSet rs, int columnIndex) throws Exception {
+			OffsetDateTime value = offsetDateTimeConverter.getValue(rs, columnIndex);
+			return (value == null)?null:value.toZonedDateTime();
+		}
+		
+		public void setNonNullValue(PreparedStatement ps, int index, ZonedDateTime value) throws SQLException {
+			if (isSupported(ps)) {
+				offsetDateTimeConverter.setNonNullValue(ps, index, value.toOffsetDateTime());
+			} else {
+				// keep the zone rules rather than just the offset when binding the old way
+				ps.setTimestamp(index, Timestamp.from(value.toInstant()), newCalendar(value.getZone()));
+			}
+		}
+	}
+}
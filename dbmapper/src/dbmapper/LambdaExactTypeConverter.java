@@ -20,6 +20,7 @@ import java.sql.SQLException;
 
 public class LambdaExactTypeConverter<T> implements ExactTypeConverter<T> {
 	private ValueGetter<T> valueGetter;
+	private IndexedValueGetter<T> indexedValueGetter;
 	private ValueSetter<T> valueSetter;
 	
 	public LambdaExactTypeConverter(ValueGetter<T> valueGetter, ValueSetter<T> valueSetter) {
@@ -27,10 +28,31 @@ public class LambdaExactTypeConverter<T> implements ExactTypeConverter<T> {
 		this.valueSetter = valueSetter;
 	}
 	
+	private LambdaExactTypeConverter(IndexedValueGetter<T> indexedValueGetter, ValueSetter<T> valueSetter) {
+		this.indexedValueGetter = indexedValueGetter;
+		this.valueSetter = valueSetter;
+	}
+	
+	/** Create a converter that reads by column index and detects null through rs.wasNull(). */
+	public static <T> LambdaExactTypeConverter<T> indexed(IndexedValueGetter<T> indexedValueGetter, ValueSetter<T> valueSetter) {
+		return new LambdaExactTypeConverter<T>(indexedValueGetter, valueSetter);
+	}
+	
 	public T getValue(ResultSet rs, String columnName) throws Exception {
+		if (valueGetter == null) {
+			return getValue(rs, rs.findColumn(columnName));
+		}
 		return valueGetter.getValue(rs, columnName);
 	}
 	
+	public T getValue(ResultSet rs, int columnIndex) throws Exception {
+		if (indexedValueGetter == null) {
+			return ExactTypeConverter.super.getValue(rs, columnIndex);
+		}
+		T value = indexedValueGetter.getValue(rs, columnIndex);
+		return rs.wasNull() ? null : value;
+	}
+	
 	public void setNonNullValue(PreparedStatement ps, int index, T value) throws SQLException {
 		valueSetter.setValue(ps, index, value);
 	}
@@ -39,6 +61,10 @@ public class LambdaExactTypeConverter<T> implements ExactTypeConverter<T> {
 		public T getValue(ResultSet rs, String columnName) throws SQLException;
 	}
 	
+	public interface IndexedValueGetter<T> {
+		public T getValue(ResultSet rs, int columnIndex) throws SQLException;
+	}
+	
 	public interface ValueSetter<T> {
 		public void setValue(PreparedStatement ps, int index, T value) throws SQLException;
 	}	
@@ -0,0 +1,121 @@
+package dbmapper;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.sql.ResultSet;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+
+import dbmapper.util.BufferedResultSet;
+import dbmapper.util.RowMapper;
+
+// splits mapping a result set in two: the calling thread is the only one touching the driver,
+// copying raw column values into chunks of rows, while the workers run the type conversion and
+// setters for each chunk.  chunks are handed to the consumer in order, on the calling thread,
+// and at most maxChunksInFlight are buffered at once, so a slow consumer or slow workers hold
+// the reading back rather than letting it fill memory.
+// conversions start from whatever the driver's getObject returns, so it suits drivers that
+// return the standard java.sql and java.time types.  any executor works for the workers, e.g.
+// a virtual thread executor on newer JVMs.
+public class MappingPipeline {
+	private Executor workers;
+	private int chunkSize;
+	private int maxChunksInFlight;
+
+	/** A pipeline mapping on the common fork/join pool. */
+	public MappingPipeline() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	public MappingPipeline(Executor workers) {
+		this(workers, 256, 2 * Runtime.getRuntime().availableProcessors());
+	}
+
+	public MappingPipeline(Executor workers, int chunkSize, int maxChunksInFlight) {
+		this.workers = workers;
+		this.chunkSize = Math.max(1, chunkSize);
+		this.maxChunksInFlight = Math.max(1, maxChunksInFlight);
+	}
+
+	/** Map every remaining row of rs, passing them to consumer in order. */
+	public <T> void forEach(ResultSet rs, RowMapper<T> rowMapper, Consumer<? super T> consumer) throws Exception {
+		BufferedResultSet.Shape shape = new BufferedResultSet.Shape(rs);
+		int columnCount = shape.getColumnCount();
+		ArrayDeque<CompletableFuture<List<T>>> chunks = new ArrayDeque<>();
+		try {
+			while(true) {
+				Object[] values = new Object[chunkSize * columnCount];
+				int rows = BufferedResultSet.copy(rs, columnCount, values, chunkSize);
+				if (rows == 0) {
+					break;
+				}
+				// a result that fits in one chunk isn't worth a trip to the workers
+				if ((rows < chunkSize) && chunks.isEmpty()) {
+					map(new BufferedResultSet(shape, values, rows), rowMapper).forEach(consumer);
+					return;
+				}
+				BufferedResultSet chunk = new BufferedResultSet(shape, values, rows);
+				chunks.add(CompletableFuture.supplyAsync(() -> map(chunk, rowMapper), workers));
+
+				while(!chunks.isEmpty() && ((chunks.size() >= maxChunksInFlight) || chunks.peek().isDone())) {
+					join(chunks.poll()).forEach(consumer);
+				}
+				if (rows < chunkSize) {
+					break;
+				}
+			}
+			while(!chunks.isEmpty()) {
+				join(chunks.poll()).forEach(consumer);
+			}
+		} finally {
+			// whatever hasn't started yet doesn't need to
+			for(CompletableFuture<List<T>> chunk : chunks) {
+				chunk.cancel(false);
+			}
+		}
+	}
+
+	private static <T> List<T> map(ResultSet chunk, RowMapper<T> rowMapper) {
+		try {
+			List<T> list = new ArrayList<>();
+			while(chunk.next()) {
+				list.add(rowMapper.map(chunk));
+			}
+			return list;
+		} catch(DBMapperException e) {
+			throw e;
+		} catch(Exception e) {
+			throw new DBMapperException(e);
+		}
+	}
+
+	private static <T> List<T> join(CompletableFuture<List<T>> chunk) {
+		try {
+			return chunk.join();
+		} catch(CompletionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Error) {
+				throw (Error)cause;
+			}
+			throw (cause instanceof DBMapperException)?(DBMapperException)cause:new DBMapperException((Exception)cause);
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package dbmapper;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// describes how the rows of a join of a parent table with a child table are folded into
+// parents that each hold a collection of their children, for DBMapper.buildList and forEach.
+// e.g. for SELECT o.*, l.id AS line_id, l.amount AS line_amount FROM orders o LEFT JOIN lines l ...
+//
+//   OneToMany<Order, Line> orders = new OneToMany<>(Order.class, "lines", Line.class, "id");
+//   orders.setChildColumnPrefix("line_");
+//   orders.setOrdered(true);
+//
+// a row only adds a child when the child's key columns aren't null, so an outer join row for a
+// parent without children adds nothing.  by default those are the primary key columns of the
+// child's table.
+public class OneToMany<P, C> {
+	private Class<P> parentClass;
+	private String collectionProperty;
+	private Class<C> childClass;
+	private List<String> parentKeyColumns;
+	private String childColumnPrefix;
+	private List<String> childKeyColumns = Collections.emptyList();
+	private boolean ordered;
+
+	/** Children of childClass are added to the collection property of parentClass, grouping rows by parentKeyColumns. */
+	public OneToMany(Class<P> parentClass, String collectionProperty, Class<C> childClass, String... parentKeyColumns) {
+		if (parentKeyColumns.length == 0) {
+			throw new DBMapperException("At least one parent key column is needed");
+		}
+		this.parentClass = parentClass;
+		this.collectionProperty = collectionProperty;
+		this.childClass = childClass;
+		this.parentKeyColumns = Collections.unmodifiableList(Arrays.asList(parentKeyColumns.clone()));
+	}
+
+	public Class<P> getParentClass() {
+		return parentClass;
+	}
+
+	public String getCollectionProperty() {
+		return collectionProperty;
+	}
+
+	public Class<C> getChildClass() {
+		return childClass;
+	}
+
+	public List<String> getParentKeyColumns() {
+		return parentKeyColumns;
+	}
+
+	public String getChildColumnPrefix() {
+		return childColumnPrefix;
+	}
+
+	/** Map the child from only the columns labelled with prefix, with the prefix removed, and the parent from only the others.
+	 * Without one (the default) both are mapped from every column, except that a repeated label is the parent's the first
+	 * time and the child's the last. */
+	public void setChildColumnPrefix(String childColumnPrefix) {
+		this.childColumnPrefix = childColumnPrefix;
+	}
+
+	public List<String> getChildKeyColumns() {
+		return childKeyColumns;
+	}
+
+	/** The child columns, without any prefix, that are only null when a row has no child.  Without a prefix they're looked
+	 * for after the parent's columns, so with SELECT o.*, l.* the child's id is l.id rather than o.id. */
+	public void setChildKeyColumns(String... childKeyColumns) {
+		this.childKeyColumns = Collections.unmodifiableList(Arrays.asList(childKeyColumns.clone()));
+	}
+
+	public boolean isOrdered() {
+		return ordered;
+	}
+
+	/** Whether the rows of each parent are known to be next to each other, e.g. ORDER BY the parent key.  Each parent is then
+	 * passed on as soon as its rows end, without remembering the parents seen so far. */
+	public void setOrdered(boolean ordered) {
+		this.ordered = ordered;
+	}
+}
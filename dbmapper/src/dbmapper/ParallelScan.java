@@ -0,0 +1,317 @@
+package dbmapper;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import dbmapper.util.Column;
+import dbmapper.util.TableHelper;
+import dbmapper.util.TableScan;
+
+// scans a whole table on several connections at once.  the range between the smallest and
+// largest primary key is cut into partitions, and each partition is read as its own keyset
+// scan on a fork/join pool, with its own connection from the supplier and its own mapper from
+// the factory.  there are several partitions per worker, so when ids are unevenly spread the
+// workers that finish early steal the partitions still waiting.
+// only tables with a single whole number key can be split; any other is read as one partition.
+// each connection is closed once its partition has been read.
+public class ParallelScan<T> {
+	private Class<T> clazz;
+	private Supplier<Connection> connections;
+	private DBMapperFactory mapperFactory = new DefaultDBMapperFactory();
+	private String tableName;
+	private ForkJoinPool pool;
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private int partitions;
+	private int pageSize = 1000;
+	private int queueSize = 1024;
+
+	public ParallelScan(Class<T> clazz, Supplier<Connection> connections) {
+		this.clazz = clazz;
+		this.connections = connections;
+	}
+
+	/** Where each partition's mapper comes from, a DefaultDBMapperFactory by default. */
+	public void setMapperFactory(DBMapperFactory mapperFactory) {
+		this.mapperFactory = mapperFactory;
+	}
+
+	/** The table to scan, by default the one for the class. */
+	public void setTableName(String tableName) {
+		this.tableName = tableName;
+	}
+
+	/** The pool the partitions are read on, by default one of the scan's own with parallelism workers.  Its parallelism is the 
+	 * number of connections open at once.  Its workers block on the database, so it shouldn't be the common pool. */
+	public void setPool(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	/** The workers of the default pool, and so the connections open at once, by default the number of processors. */
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+
+	/** The number of key ranges to read, by default four per worker of the pool. */
+	public void setPartitions(int partitions) {
+		this.partitions = partitions;
+	}
+
+	/** The rows selected per page of each partition. */
+	public void setPageSize(int pageSize) {
+		this.pageSize = pageSize;
+	}
+
+	/** The rows stream buffers ahead of its consumer before the partitions wait for it. */
+	public void setQueueSize(int queueSize) {
+		this.queueSize = queueSize;
+	}
+
+	/** The key ranges the table would be read as, from the keys it holds now. */
+	public List<Range> getRanges() {
+		List<Range> ranges = new ArrayList<>();
+		try (Connection connection = connections.get()) {
+			DBMapper mapper = mapperFactory.getDBMapperInstance(connection);
+			String table;
+			try {
+				table = getTableName(mapper);
+			} finally {
+				close(mapper);
+			}
+			List<Column> keyColumns = new TableHelper(connection, table).getPrimaryKeyColumns();
+			Object min = null, max = null;
+			if (keyColumns.size() == 1) {
+				String key = keyColumns.get(0).getName();
+				try (Statement statement = connection.createStatement();
+				ResultSet rs = statement.executeQuery("SELECT MIN(" + key + "), MAX(" + key + ") FROM " + table)) {
+					if (rs.next()) {
+						min = rs.getObject(1);
+						max = rs.getObject(2);
+					}
+				}
+			}
+			// an empty table is still read, since rows could arrive before the scan starts
+			if (isWholeNumber(min) && isWholeNumber(max)) {
+				split(((Number)min).longValue(), ((Number)max).longValue(), ranges);
+			} else {
+				ranges.add(new Range(null, null));
+			}
+			return ranges;
+		} catch(DBMapperException e) {
+			throw e;
+		} catch(Exception e) {
+			throw new DBMapperException(e);
+		}
+	}
+
+	/** Read every partition, passing its rows to action as a stream, on the pool's threads and in parallel. */
+	public void forEachPartition(BiConsumer<? super Range, ? super Stream<T>> action) {
+		List<Range> ranges = getRanges();
+		List<RecursiveAction> tasks = new ArrayList<>();
+		for(Range range : ranges) {
+			tasks.add(new RecursiveAction() {
+				protected void compute() {
+					scan(range, action);
+				}
+			});
+		}
+		getPool().invoke(new RecursiveAction() {
+			protected void compute() {
+				ForkJoinTask.invokeAll(tasks);
+			}
+		});
+	}
+
+	/** Pass every row to consumer, which is called from several threads at once. */
+	public void forEach(Consumer<? super T> consumer) {
+		forEachPartition((range, rows) -> rows.forEach(consumer));
+	}
+
+	/** Every row, in no particular order, as the partitions read them.  Close the stream if it isn't read to the end. */
+	public Stream<T> stream() {
+		BlockingQueue<Object> queue = new ArrayBlockingQueue<>(queueSize);
+		AtomicBoolean closed = new AtomicBoolean();
+		getPool().execute(() -> {
+			Object last = END;
+			try {
+				forEachPartition((range, rows) -> rows.forEach(row -> put(queue, row, closed)));
+			} catch(Throwable t) {
+				last = new Failure(t);
+			}
+			if (!closed.get()) {
+				put(queue, last, closed);
+			}
+		});
+
+		Iterator<T> iterator = new Iterator<T>() {
+			private Object next;
+
+			public boolean hasNext() {
+				if (next == null) {
+					try {
+						next = queue.take();
+					} catch(InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new DBMapperException(e);
+					}
+				}
+				if (next instanceof Failure) {
+					Throwable t = ((Failure)next).cause;
+					if (t instanceof Error) throw (Error)t;
+					throw (t instanceof DBMapperException)?(DBMapperException)t:new DBMapperException((Exception)t);
+				}
+				return next != END;
+			}
+
+			public T next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				T row = clazz.cast(next);
+				next = null;
+				return row;
+			}
+		};
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.NONNULL), false).onClose(() -> {
+			closed.set(true);
+			queue.clear();
+		});
+	}
+
+	private void scan(Range range, BiConsumer<? super Range, ? super Stream<T>> action) {
+		try (Connection connection = connections.get()) {
+			DBMapper mapper = mapperFactory.getDBMapperInstance(connection);
+			try (TableScan<T> scan = mapper.scan(getTableName(mapper), clazz, pageSize, range.after, range.upTo)) {
+				action.accept(range, scan.stream());
+			} finally {
+				close(mapper);
+			}
+		} catch(RuntimeException e) {
+			throw e;
+		} catch(Exception e) {
+			throw new DBMapperException(e);
+		}
+	}
+
+	// equal parts of the key range, however the keys are actually spread
+	private void split(long min, long max, List<Range> ranges) {
+		BigInteger from = BigInteger.valueOf(min).subtract(BigInteger.ONE);
+		BigInteger span = BigInteger.valueOf(max).subtract(from);
+		int count = (partitions > 0)?partitions:(4 * getPool().getParallelism());
+		count = (int)Math.max(1, Math.min(count, span.min(BigInteger.valueOf(Integer.MAX_VALUE)).longValue()));
+		Long after = null;
+		for(int i = 1; i <= count; i++) {
+			Long upTo = (i == count)?null:from.add(span.multiply(BigInteger.valueOf(i)).divide(BigInteger.valueOf(count))).longValue();
+			ranges.add(new Range(after, upTo));
+			after = upTo;
+		}
+	}
+
+	// created on first use; idle workers end by themselves, so the pool needn't be shut down
+	private synchronized ForkJoinPool getPool() {
+		if (pool == null) {
+			pool = new ForkJoinPool(Math.max(1, parallelism));
+		}
+		return pool;
+	}
+
+	// mappers holding statements on the connection, like DefaultDBMapper with a statement cache, release them on close
+	private static void close(DBMapper mapper) throws Exception {
+		if (mapper instanceof AutoCloseable) {
+			((AutoCloseable)mapper).close();
+		}
+	}
+
+	private String getTableName(DBMapper mapper) {
+		return (tableName != null)?tableName:mapper.getTableName(clazz);
+	}
+
+	private static boolean isWholeNumber(Object value) {
+		if (value instanceof BigDecimal) {
+			return ((BigDecimal)value).stripTrailingZeros().scale() <= 0;
+		}
+		return (value instanceof Long) || (value instanceof Integer) || (value instanceof Short) || (value instanceof Byte)
+			|| (value instanceof BigInteger);
+	}
+
+	// waits for room, giving up once the stream has been closed
+	private static void put(BlockingQueue<Object> queue, Object item, AtomicBoolean closed) {
+		try {
+			while(!queue.offer(item, 100, TimeUnit.MILLISECONDS)) {
+				if (closed.get()) {
+					throw new CancellationException("The stream was closed");
+				}
+			}
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DBMapperException(e);
+		}
+	}
+
+	private static final Object END = new Object();
+
+	private static class Failure {
+		Throwable cause;
+		Failure(Throwable cause) {
+			this.cause = cause;
+		}
+	}
+
+	/** The keys after after, up to and including upTo.  null means no bound. */
+	public static class Range {
+		private Long after;
+		private Long upTo;
+
+		Range(Long after, Long upTo) {
+			this.after = after;
+			this.upTo = upTo;
+		}
+
+		public Long getAfter() {
+			return after;
+		}
+
+		public Long getUpTo() {
+			return upTo;
+		}
+
+		public String toString() {
+			return "(" + ((after == null)?"":after) + ", " + ((upTo == null)?"":upTo) + "]";
+		}
+	}
+}
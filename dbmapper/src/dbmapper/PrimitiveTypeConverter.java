@@ -0,0 +1,110 @@
+package dbmapper;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+// converters that can move int, long and double values between the driver and getters/setters
+// without boxing.  row mappers and binders check for these when the property type is primitive.
+public final class PrimitiveTypeConverter {
+	public static final OfInt INT = new OfInt() {
+		public int getInt(ResultSet rs, int columnIndex) throws SQLException {
+			return rs.getInt(columnIndex);
+		}
+		public void setInt(PreparedStatement ps, int index, int value) throws SQLException {
+			ps.setInt(index, value);
+		}
+	};
+	
+	public static final OfLong LONG = new OfLong() {
+		public long getLong(ResultSet rs, int columnIndex) throws SQLException {
+			return rs.getLong(columnIndex);
+		}
+		public void setLong(PreparedStatement ps, int index, long value) throws SQLException {
+			ps.setLong(index, value);
+		}
+	};
+	
+	public static final OfDouble DOUBLE = new OfDouble() {
+		public double getDouble(ResultSet rs, int columnIndex) throws SQLException {
+			return rs.getDouble(columnIndex);
+		}
+		public void setDouble(PreparedStatement ps, int index, double value) throws SQLException {
+			ps.setDouble(index, value);
+		}
+	};
+	
+	private PrimitiveTypeConverter() {
+	}
+	
+	public interface OfInt extends ExactTypeConverter<Integer> {
+		/** Read the column without boxing; callers check rs.wasNull() */
+		public int getInt(ResultSet rs, int columnIndex) throws SQLException;
+		public void setInt(PreparedStatement ps, int index, int value) throws SQLException;
+		
+		public default Integer getValue(ResultSet rs, int columnIndex) throws SQLException {
+			int value = getInt(rs, columnIndex);
+			return rs.wasNull() ? null : value;
+		}
+		
+		public default Integer getValue(ResultSet rs, String columnName) throws SQLException {
+			return getValue(rs, rs.findColumn(columnName));
+		}
+		
+		public default void setNonNullValue(PreparedStatement ps, int index, Integer value) throws SQLException {
+			setInt(ps, index, value);
+		}
+	}
+	
+	public interface OfLong extends ExactTypeConverter<Long> {
+		/** Read the column without boxing; callers check rs.wasNull() */
+		public long getLong(ResultSet rs, int columnIndex) throws SQLException;
+		public void setLong(PreparedStatement ps, int index, long value) throws SQLException;
+		
+		public default Long getValue(ResultSet rs, int columnIndex) throws SQLException {
+			long value = getLong(rs, columnIndex);
+			return rs.wasNull() ? null : value;
+		}
+		
+		public default Long getValue(ResultSet rs, String columnName) throws SQLException {
+			return getValue(rs, rs.findColumn(columnName));
+		}
+		
+		public default void setNonNullValue(PreparedStatement ps, int index, Long value) throws SQLException {
+			setLong(ps, index, value);
+		}
+	}
+	
+	public interface OfDouble extends ExactTypeConverter<Double> {
+		/** Read the column without boxing; callers check rs.wasNull() */
+		public double getDouble(ResultSet rs, int columnIndex) throws SQLException;
+		public void setDouble(PreparedStatement ps, int index, double value) throws SQLException;
+		
+		public default Double getValue(ResultSet rs, int columnIndex) throws SQLException {
+			double value = getDouble(rs, columnIndex);
+			return rs.wasNull() ? null : value;
+		}
+		
+		public default Double getValue(ResultSet rs, String columnName) throws SQLException {
+			return getValue(rs, rs.findColumn(columnName));
+		}
+		
+		public default void setNonNullValue(PreparedStatement ps, int index, Double value) throws SQLException {
+			setDouble(ps, index, value);
+		}
+	}
+}
@@ -0,0 +1,266 @@
+package dbmapper;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.ToLongFunction;
+
+// caches mapped query results by (sql, parameters, class), tagged with the tables the query
+// reads.  writes through the mapper invalidate every result tagged with the written table.
+// entries are evicted least recently used first once their estimated size passes the
+// maximum, or once they're older than the time to live.  concurrent misses for the same
+// query wait on the one execution already running instead of starting their own, and a
+// result whose tables were written while it was loading is returned but not cached, and
+// neither is one reading a table written by a transaction that hasn't ended yet.
+public class QueryCache {
+	private long maximumBytes;
+	private long timeToLive;
+	private ToLongFunction<List<?>> weigher;
+	private LinkedHashMap<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private Map<Key, FutureTask<List<?>>> loading = new HashMap<>();
+	private Map<String, Long> generations = new HashMap<>();
+	private Map<String, Integer> pendingWrites = new HashMap<>();
+	private long bytes;
+	private long hits, misses, evictions;
+
+	/** A cache holding results up to an estimated maximumBytes, with no time to live. */
+	public QueryCache(long maximumBytes) {
+		this(maximumBytes, 0);
+	}
+
+	public QueryCache(long maximumBytes, long timeToLiveInMillis) {
+		this(maximumBytes, timeToLiveInMillis, QueryCache::estimateSize);
+	}
+
+	/** A cache sizing results with weigher instead of the default estimate. */
+	public QueryCache(long maximumBytes, long timeToLiveInMillis, ToLongFunction<List<?>> weigher) {
+		this.maximumBytes = maximumBytes;
+		this.timeToLive = timeToLiveInMillis;
+		this.weigher = weigher;
+	}
+
+	/** The cached result for the query, or the result of loader, which is cached under tables. */
+	@SuppressWarnings("unchecked")
+	public <T> List<T> get(Class<T> clazz, String sql, Object[] params, Collection<String> tables, Callable<List<T>> loader) {
+		Key key = new Key(clazz, sql, params);
+		FutureTask<List<?>> task;
+		boolean owner = false;
+		Map<String, Long> started = new HashMap<>();
+		synchronized(this) {
+			Entry entry = entries.get(key);
+			if ((entry != null) && (timeToLive > 0) && (System.currentTimeMillis() - entry.createdAt > timeToLive)) {
+				remove(key);
+				entry = null;
+			}
+			if (entry != null) {
+				hits++;
+				return (List<T>)entry.result;
+			}
+			misses++;
+			task = loading.get(key);
+			if (task == null) {
+				task = new FutureTask<>(() -> Collections.unmodifiableList(new ArrayList<>(loader.call())));
+				loading.put(key, task);
+				owner = true;
+				for(String table : tables) {
+					started.put(table.toLowerCase(), generation(table));
+				}
+			}
+		}
+
+		if (owner) {
+			task.run();
+		}
+		try {
+			List<T> result = (List<T>)task.get();
+			if (owner) {
+				put(key, result, started);
+			}
+			return result;
+		} catch(ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Error) {
+				throw (Error)cause;
+			}
+			throw (cause instanceof DBMapperException)?(DBMapperException)cause:new DBMapperException((Exception)cause);
+		} catch(InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new DBMapperException(e);
+		} finally {
+			if (owner) {
+				synchronized(this) {
+					loading.remove(key);
+				}
+			}
+		}
+	}
+
+	/** Note a write to tableName by a transaction that hasn't ended, invalidating the table until endWrite. */
+	public synchronized void beginWrite(String tableName) {
+		pendingWrites.merge(tableName.toLowerCase(), 1, Integer::sum);
+		invalidate(tableName);
+	}
+
+	/** The transaction that called beginWrite has committed or rolled back. */
+	public synchronized void endWrite(String tableName) {
+		String table = tableName.toLowerCase();
+		Integer pending = pendingWrites.get(table);
+		if ((pending == null) || (pending <= 1)) {
+			pendingWrites.remove(table);
+		} else {
+			pendingWrites.put(table, pending - 1);
+		}
+		// results read while the transaction was open may be from before its commit
+		invalidate(tableName);
+	}
+
+	/** Drop every result tagged with tableName. */
+	public synchronized void invalidate(String tableName) {
+		String table = tableName.toLowerCase();
+		generations.put(table, generation(table) + 1);
+		for(Iterator<Map.Entry<Key, Entry>> i = entries.entrySet().iterator(); i.hasNext(); ) {
+			Entry entry = i.next().getValue();
+			if (entry.tables.containsKey(table)) {
+				bytes -= entry.bytes;
+				i.remove();
+			}
+		}
+	}
+
+	public synchronized void clear() {
+		entries.clear();
+		bytes = 0;
+	}
+
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	public synchronized long getEvictionCount() {
+		return evictions;
+	}
+
+	private synchronized void put(Key key, List<?> result, Map<String, Long> started) {
+		for(Map.Entry<String, Long> table : started.entrySet()) {
+			if ((generation(table.getKey()) != table.getValue()) || pendingWrites.containsKey(table.getKey())) {
+				return;
+			}
+		}
+		remove(key);
+		Entry entry = new Entry(result, weigher.applyAsLong(result), started);
+		entries.put(key, entry);
+		bytes += entry.bytes;
+		while((bytes > maximumBytes) && !entries.isEmpty()) {
+			remove(entries.keySet().iterator().next());
+			evictions++;
+		}
+	}
+
+	private void remove(Key key) {
+		Entry entry = entries.remove(key);
+		if (entry != null) {
+			bytes -= entry.bytes;
+		}
+	}
+
+	private long generation(String table) {
+		Long generation = generations.get(table.toLowerCase());
+		return (generation == null)?0:generation;
+	}
+
+	// a rough shallow size, sampled from the first row: headers and references, plus the
+	// characters of any strings
+	private static long estimateSize(List<?> result) {
+		if (result.isEmpty()) {
+			return 64;
+		}
+		Object row = result.get(0);
+		long size = 16;
+		for(Class<?> c = row.getClass(); c != Object.class; c = c.getSuperclass()) {
+			for(Field field : c.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers())) {
+					continue;
+				}
+				size += 8;
+				if (!field.getType().isPrimitive()) {
+					size += 16;
+					if (field.getType() == String.class) {
+						try {
+							field.setAccessible(true);
+							String s = (String)field.get(row);
+							size += (s == null)?0:(24 + 2 * s.length());
+						} catch(Exception e) {}
+					}
+				}
+			}
+		}
+		return 64 + result.size() * (size + 8);
+	}
+
+	private static class Key {
+		Class<?> clazz;
+		String sql;
+		List<Object> params;
+
+		Key(Class<?> clazz, String sql, Object[] params) {
+			this.clazz = clazz;
+			this.sql = sql;
+			this.params = Arrays.asList(params.clone());
+		}
+
+		public int hashCode() {
+			return (31 * clazz.hashCode() + sql.hashCode()) * 31 + params.hashCode();
+		}
+
+		public boolean equals(Object o) {
+			if (!(o instanceof Key)) return false;
+			Key k = (Key)o;
+			return (k.clazz == clazz) && k.sql.equals(sql) && k.params.equals(params);
+		}
+	}
+
+	private static class Entry {
+		List<?> result;
+		long bytes;
+		Map<String, Long> tables;
+		long createdAt = System.currentTimeMillis();
+		Entry(List<?> result, long bytes, Map<String, Long> tables) {
+			this.result = result;
+			this.bytes = bytes;
+			this.tables = tables;
+		}
+	}
+}
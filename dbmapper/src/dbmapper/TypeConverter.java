@@ -21,4 +21,15 @@ import java.sql.SQLException;
 public interface TypeConverter {
 	public Object getValue(ResultSet rs, String columnName, Class<?> targetType) throws Exception;
 	public <T> void setValue(PreparedStatement ps, int index, T value) throws SQLException;
+	
+	/** Resolve once per column how values of targetType are read, so reading a cell skips the lookup. */
+	public default ColumnReader<?> getColumnReader(Class<?> targetType) {
+		// adapter for converters that only know how to read by name
+		return (rs, columnIndex) -> getValue(rs, rs.getMetaData().getColumnName(columnIndex), targetType);
+	}
+	
+	/** Resolve once per column how values declared as valueType are bound. */
+	public default ColumnWriter<?> getColumnWriter(Class<?> valueType) {
+		return (ps, index, value) -> setValue(ps, index, value);
+	}
 }
\ No newline at end of file
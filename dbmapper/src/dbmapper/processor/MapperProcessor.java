@@ -0,0 +1,238 @@
+package dbmapper.processor;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.PrimitiveType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+
+// generates an EntityAccessors implementation for every class annotated with @TableName or
+// @MappedEntity, and lists them in META-INF/services/dbmapper.util.EntityAccessors.  ClassHelper
+// picks them up instead of scanning with reflection, so mapping needs no reflection at all.
+// the rules for what counts as a getter or setter match ClassHelper's.
+@SupportedAnnotationTypes({"dbmapper.TableName", "dbmapper.MappedEntity"})
+public class MapperProcessor extends AbstractProcessor {
+	private static final String SERVICE_FILE = "META-INF/services/dbmapper.util.EntityAccessors";
+	
+	private Set<String> generated = new LinkedHashSet<>();
+	
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+	
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		for(TypeElement annotation : annotations) {
+			for(Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+				if (element.getKind() == ElementKind.CLASS) {
+					generate((TypeElement)element);
+				}
+			}
+		}
+		
+		if (roundEnv.processingOver() && !generated.isEmpty()) {
+			writeServiceFile();
+		}
+		return false;
+	}
+	
+	private void generate(TypeElement type) {
+		String entityName = type.getQualifiedName().toString();
+		if (!isGeneratable(type)) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.WARNING, 
+				"dbmapper accessors not generated for " + entityName + ": it must be a public, non-abstract, top level "
+				+ "or static nested class with a public no-arg constructor", type);
+			return;
+		}
+		
+		PackageElement pkg = processingEnv.getElementUtils().getPackageOf(type);
+		String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+		String simpleName = getFlatName(type).substring(packageName.isEmpty() ? 0 : packageName.length() + 1) + "_DBMapperAccessors";
+		String className = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+		if (!generated.add(className)) return;
+		
+		Map<String, ExecutableElement> setters = new LinkedHashMap<>(), getters = new LinkedHashMap<>();
+		for(ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+			if (!method.getModifiers().contains(Modifier.PUBLIC) || method.getModifiers().contains(Modifier.STATIC)) continue;
+			if (((TypeElement)method.getEnclosingElement()).getQualifiedName().contentEquals("java.lang.Object")) continue;
+			
+			String name = method.getSimpleName().toString();
+			int parameters = method.getParameters().size();
+			if (name.startsWith("set") && (parameters == 1)) {
+				setters.put(name, method);
+			} else if ((parameters == 0) && (method.getReturnType().getKind() != TypeKind.VOID)
+			&& ((name.startsWith("get") && (name.length() > 3)) || (name.startsWith("is") && (name.length() > 2)))) {
+				getters.put(name, method);
+			}
+		}
+		
+		StringBuilder b = new StringBuilder();
+		if (!packageName.isEmpty()) {
+			b.append("package ").append(packageName).append(";\n\n");
+		}
+		b.append("@SuppressWarnings({\"unchecked\", \"rawtypes\"})\n");
+		b.append("public final class ").append(simpleName).append(" implements dbmapper.util.EntityAccessors {\n");
+		b.append("\tpublic Class<?> getEntityClass() {\n\t\treturn ").append(entityName).append(".class;\n\t}\n\n");
+		b.append("\tpublic Object newInstance() {\n\t\treturn new ").append(entityName).append("();\n\t}\n\n");
+		
+		b.append("\tpublic java.util.List<dbmapper.util.Setter> getSetters() {\n");
+		b.append("\t\tjava.util.List<dbmapper.util.Setter> setters = new java.util.ArrayList<>();\n");
+		for(ExecutableElement setter : setters.values()) {
+			TypeMirror parameterType = erasure(asMemberOf(type, setter).getParameterTypes().get(0));
+			String name = setter.getSimpleName().toString();
+			b.append("\t\tdbmapper.util.Setter ").append(name).append(" = new dbmapper.util.Setter(\"").append(name).append("\", ");
+			b.append(parameterType).append(".class, (o, v) -> ((").append(entityName).append(")o).");
+			b.append(name).append("((").append(boxedName(parameterType)).append(")v));\n");
+			String primitive = getPrimitiveAccessorSuffix(parameterType);
+			if (primitive != null) {
+				b.append("\t\t").append(name).append(".set").append(primitive).append("Accessor((o, v) -> ((");
+				b.append(entityName).append(")o).").append(name).append("(v));\n");
+			}
+			b.append("\t\tsetters.add(").append(name).append(");\n");
+		}
+		b.append("\t\treturn setters;\n\t}\n\n");
+		
+		b.append("\tpublic java.util.List<dbmapper.util.Getter> getGetters() {\n");
+		b.append("\t\tjava.util.List<dbmapper.util.Getter> getters = new java.util.ArrayList<>();\n");
+		for(ExecutableElement getter : getters.values()) {
+			TypeMirror returnType = erasure(asMemberOf(type, getter).getReturnType());
+			String name = getter.getSimpleName().toString();
+			b.append("\t\tdbmapper.util.Getter ").append(name).append(" = new dbmapper.util.Getter(\"").append(name).append("\", ");
+			b.append(returnType).append(".class, o -> ((").append(entityName).append(")o).").append(name).append("());\n");
+			String primitive = getPrimitiveAccessorSuffix(returnType);
+			if (primitive != null) {
+				b.append("\t\t").append(name).append(".set").append(primitive).append("Accessor(o -> ((");
+				b.append(entityName).append(")o).").append(name).append("());\n");
+			}
+			b.append("\t\tgetters.add(").append(name).append(");\n");
+		}
+		b.append("\t\treturn getters;\n\t}\n}\n");
+		
+		try (Writer writer = processingEnv.getFiler().createSourceFile(className, type).openWriter()) {
+			writer.write(b.toString());
+		} catch(IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Couldn't write " + className + ": " + e, type);
+		}
+	}
+	
+	private boolean isGeneratable(TypeElement type) {
+		for(Element e = type; e.getKind().isClass() || e.getKind().isInterface(); e = e.getEnclosingElement()) {
+			TypeElement t = (TypeElement)e;
+			if (!t.getModifiers().contains(Modifier.PUBLIC)) return false;
+			if ((t.getNestingKind() == NestingKind.MEMBER) && !t.getModifiers().contains(Modifier.STATIC)) return false;
+			if ((t.getNestingKind() != NestingKind.TOP_LEVEL) && (t.getNestingKind() != NestingKind.MEMBER)) return false;
+		}
+		if (type.getModifiers().contains(Modifier.ABSTRACT)) return false;
+		
+		List<ExecutableElement> constructors = ElementFilter.constructorsIn(type.getEnclosedElements());
+		for(ExecutableElement constructor : constructors) {
+			if (constructor.getParameters().isEmpty() && constructor.getModifiers().contains(Modifier.PUBLIC)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	// Outer$Inner becomes Outer_Inner so nested entities get a top level accessor class
+	private String getFlatName(TypeElement type) {
+		return processingEnv.getElementUtils().getBinaryName(type).toString().replace('$', '_');
+	}
+	
+	// inherited members are seen with the entity's type arguments, so Base<Long>.setId(ID) takes a Long
+	private ExecutableType asMemberOf(TypeElement type, ExecutableElement method) {
+		return (ExecutableType)processingEnv.getTypeUtils().asMemberOf((DeclaredType)type.asType(), method);
+	}
+	
+	private TypeMirror erasure(TypeMirror type) {
+		return processingEnv.getTypeUtils().erasure(type);
+	}
+	
+	private String boxedName(TypeMirror type) {
+		if (type.getKind().isPrimitive()) {
+			return processingEnv.getTypeUtils().boxedClass((PrimitiveType)type).getQualifiedName().toString();
+		}
+		return type.toString();
+	}
+	
+	// Getter and Setter take primitive accessors for these, so they can skip boxing
+	private String getPrimitiveAccessorSuffix(TypeMirror type) {
+		switch(type.getKind()) {
+			case INT: return "Int";
+			case LONG: return "Long";
+			case DOUBLE: return "Double";
+			default: return null;
+		}
+	}
+	
+	// an incremental build only processes the entities it recompiles, so the entries of earlier builds are kept
+	private void writeServiceFile() {
+		Set<String> classNames = new LinkedHashSet<>();
+		try {
+			FileObject existing = processingEnv.getFiler().getResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+			try (BufferedReader reader = new BufferedReader(new InputStreamReader(existing.openInputStream(), StandardCharsets.UTF_8))) {
+				for(String line = reader.readLine(); line != null; line = reader.readLine()) {
+					int comment = line.indexOf('#');
+					line = ((comment < 0)?line:line.substring(0, comment)).trim();
+					if (!line.isEmpty()) {
+						classNames.add(line);
+					}
+				}
+			}
+		} catch(IOException | IllegalArgumentException e) {
+			// there's no earlier file
+		}
+		classNames.addAll(generated);
+		
+		try {
+			FileObject file = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "", SERVICE_FILE);
+			try (Writer writer = new OutputStreamWriter(file.openOutputStream(), StandardCharsets.UTF_8)) {
+				for(String className : classNames) {
+					writer.write(className);
+					writer.write("\n");
+				}
+			}
+		} catch(IOException e) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Couldn't write " + SERVICE_FILE + ": " + e);
+		}
+	}
+}
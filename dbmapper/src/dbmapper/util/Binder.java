@@ -0,0 +1,27 @@
+package dbmapper.util;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.sql.PreparedStatement;
+
+public interface Binder {
+	/** Bind the values read from object to parameters 1..n of ps, in getter order. */
+	public default void bind(PreparedStatement ps, Object object) throws Exception {
+		bind(ps, 0, object);
+	}
+	
+	/** Bind the values read from object to parameters offset+1..offset+n of ps, in getter order. */
+	public void bind(PreparedStatement ps, int offset, Object object) throws Exception;
+}
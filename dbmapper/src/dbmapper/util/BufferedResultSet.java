@@ -0,0 +1,726 @@
+package dbmapper.util;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+
+// a read-only, forward-only ResultSet over rows already copied out of another one, so row
+// mappers can run on a thread other than the one reading from the driver.  values are kept as
+// getObject returned them, packed row after row into one array, and the typed getters convert
+// from those the way drivers commonly do.  LOBs are read into strings and byte arrays when
+// copied, since they may not outlive the driver's cursor.  the metadata is a copy too, and
+// there's no statement, so a mapper never touches the driver from its own thread.
+public class BufferedResultSet implements ResultSet {
+	private Shape shape;
+	private Object[] values;
+	private int rows;
+	private int row = -1;
+	private boolean wasNull;
+
+	public BufferedResultSet(Shape shape, Object[] values, int rows) {
+		this.shape = shape;
+		this.values = values;
+		this.rows = rows;
+	}
+
+	/** Copy up to maxRows rows from rs into values, which must hold maxRows * columnCount, and return how many were copied. */
+	public static int copy(ResultSet rs, int columnCount, Object[] values, int maxRows) throws SQLException {
+		int rows = 0;
+		for(int offset = 0; (rows < maxRows) && rs.next(); rows++) {
+			for(int i = 1; i <= columnCount; i++) {
+				Object value = rs.getObject(i);
+				if (value instanceof Clob) {
+					Clob clob = (Clob)value;
+					value = clob.getSubString(1, (int)clob.length());
+				} else if (value instanceof Blob) {
+					Blob blob = (Blob)value;
+					value = blob.getBytes(1, (int)blob.length());
+				}
+				values[offset++] = value;
+			}
+		}
+		return rows;
+	}
+
+	public boolean next() {
+		return ++row < rows;
+	}
+
+	public boolean wasNull() {
+		return wasNull;
+	}
+
+	public void close() {
+	}
+
+	public boolean isClosed() {
+		return false;
+	}
+
+	public ResultSetMetaData getMetaData() {
+		return shape.metaData;
+	}
+
+	// there's no statement a mapping thread could safely use, the driver's belongs to the reader
+	public Statement getStatement() {
+		return null;
+	}
+
+	public int findColumn(String columnLabel) throws SQLException {
+		Integer index = shape.columns.get(columnLabel.toLowerCase());
+		if (index == null) {
+			throw new SQLException("No column " + columnLabel);
+		}
+		return index;
+	}
+
+	public int getRow() {
+		return (row < rows)?(row + 1):0;
+	}
+
+	public boolean isBeforeFirst() {
+		return (row < 0) && (rows > 0);
+	}
+
+	public boolean isAfterLast() {
+		return (row >= rows) && (rows > 0);
+	}
+
+	public boolean isFirst() {
+		return (row == 0) && (rows > 0);
+	}
+
+	public boolean isLast() {
+		return (row == rows - 1);
+	}
+
+	public int getType() {
+		return TYPE_FORWARD_ONLY;
+	}
+
+	public int getConcurrency() {
+		return CONCUR_READ_ONLY;
+	}
+
+	public int getHoldability() {
+		return CLOSE_CURSORS_AT_COMMIT;
+	}
+
+	public int getFetchDirection() {
+		return FETCH_FORWARD;
+	}
+
+	public void setFetchDirection(int direction) {
+	}
+
+	public int getFetchSize() {
+		return rows;
+	}
+
+	public void setFetchSize(int rows) {
+	}
+
+	public SQLWarning getWarnings() {
+		return null;
+	}
+
+	public void clearWarnings() {
+	}
+
+	public <T> T unwrap(Class<T> iface) throws SQLException {
+		if (iface.isInstance(this)) {
+			return iface.cast(this);
+		}
+		throw new SQLException("Not a wrapper for " + iface.getName());
+	}
+
+	public boolean isWrapperFor(Class<?> iface) {
+		return iface.isInstance(this);
+	}
+
+	public Object getObject(int columnIndex) throws SQLException {
+		if ((row < 0) || (row >= rows)) {
+			throw new SQLException("No current row");
+		}
+		if ((columnIndex < 1) || (columnIndex > shape.columnCount)) {
+			throw new SQLException("No column " + columnIndex);
+		}
+		Object value = values[row * shape.columnCount + columnIndex - 1];
+		wasNull = (value == null);
+		return value;
+	}
+
+	public Object getObject(int columnIndex, Map<String, Class<?>> map) throws SQLException {
+		return getObject(columnIndex);
+	}
+
+	// the java.time and standard types JDBC 4.2 drivers hand back, built from whatever was copied
+	public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
+		Object value = getObject(columnIndex);
+		if ((value == null) || type.isInstance(value)) {
+			return type.cast(value);
+		}
+		if (type == LocalDateTime.class) {
+			return type.cast(getTimestamp(columnIndex).toLocalDateTime());
+		} else if (type == LocalDate.class) {
+			return type.cast(getDate(columnIndex).toLocalDate());
+		} else if (type == LocalTime.class) {
+			return type.cast(getTime(columnIndex).toLocalTime());
+		} else if (type == OffsetDateTime.class) {
+			return type.cast(OffsetDateTime.ofInstant(getTimestamp(columnIndex).toInstant(), ZoneId.systemDefault()));
+		} else if (type == String.class) {
+			return type.cast(getString(columnIndex));
+		} else if (type == Integer.class) {
+			return type.cast(getInt(columnIndex));
+		} else if (type == Long.class) {
+			return type.cast(getLong(columnIndex));
+		} else if (type == Double.class) {
+			return type.cast(getDouble(columnIndex));
+		} else if (type == BigDecimal.class) {
+			return type.cast(getBigDecimal(columnIndex));
+		} else if (type == Boolean.class) {
+			return type.cast(getBoolean(columnIndex));
+		} else if (type == Timestamp.class) {
+			return type.cast(getTimestamp(columnIndex));
+		} else if (type == Date.class) {
+			return type.cast(getDate(columnIndex));
+		} else if (type == Time.class) {
+			return type.cast(getTime(columnIndex));
+		}
+		// a value this class can't convert, not a missing feature, so callers only fall back for this value
+		throw cannotConvert(value, type.getName());
+	}
+
+	public String getString(int columnIndex) throws SQLException {
+		Object value = getObject(columnIndex);
+		return (value == null)?null:value.toString();
+	}
+
+	public String getNString(int columnIndex) throws SQLException {
+		return getString(columnIndex);
+	}
+
+	public boolean getBoolean(int columnIndex) throws SQLException {
+		Object value = getObject(columnIndex);
+		if (value == null) {
+			return false;
+		} else if (value instanceof Boolean) {
+			return (Boolean)value;
+		} else if (value instanceof Number) {
+			return ((Number)value).doubleValue() != 0;
+		}
+		String s = value.toString().trim();
+		return s.equalsIgnoreCase("true") || s.equalsIgnoreCase("t") || s.equalsIgnoreCase("y") || s.equals("1");
+	}
+
+	public byte getByte(int columnIndex) throws SQLException {
+		Number n = getNumber(columnIndex);
+		return (n == null)?0:n.byteValue();
+	}
+
+	public short getShort(int columnIndex) throws SQLException {
+		Number n = getNumber(columnIndex);
+		return (n == null)?0:n.shortValue();
+	}
+
+	public int getInt(int columnIndex) throws SQLException {
+		Number n = getNumber(columnIndex);
+		return (n == null)?0:n.intValue();
+	}
+
+	public long getLong(int columnIndex) throws SQLException {
+		Number n = getNumber(columnIndex);
+		return (n == null)?0:n.longValue();
+	}
+
+	public float getFloat(int columnIndex) throws SQLException {
+		Number n = getNumber(columnIndex);
+		return (n == null)?0:n.floatValue();
+	}
+
+	public double getDouble(int columnIndex) throws SQLException {
+		Number n = getNumber(columnIndex);
+		return (n == null)?0:n.doubleValue();
+	}
+
+	public BigDecimal getBigDecimal(int columnIndex) throws SQLException {
+		Number n = getNumber(columnIndex);
+		if ((n == null) || (n instanceof BigDecimal)) {
+			return (BigDecimal)n;
+		}
+		return ((n instanceof Double) || (n instanceof Float))?BigDecimal.valueOf(n.doubleValue()):new BigDecimal(n.toString());
+	}
+
+	@Deprecated
+	public BigDecimal getBigDecimal(int columnIndex, int scale) throws SQLException {
+		BigDecimal value = getBigDecimal(columnIndex);
+		return (value == null)?null:value.setScale(scale, BigDecimal.ROUND_HALF_UP);
+	}
+
+	public byte[] getBytes(int columnIndex) throws SQLException {
+		Object value = getObject(columnIndex);
+		if ((value == null) || (value instanceof byte[])) {
+			return (byte[])value;
+		}
+		throw cannotConvert(value, "byte[]");
+	}
+
+	public Date getDate(int columnIndex) throws SQLException {
+		Object value = getObject(columnIndex);
+		if ((value == null) || (value instanceof Date)) {
+			return (Date)value;
+		} else if (value instanceof LocalDate) {
+			return Date.valueOf((LocalDate)value);
+		} else if (value instanceof String) {
+			return Date.valueOf(((String)value).trim());
+		}
+		Timestamp t = getTimestamp(columnIndex);
+		return Date.valueOf(t.toLocalDateTime().toLocalDate());
+	}
+
+	public Time getTime(int columnIndex) throws SQLException {
+		Object value = getObject(columnIndex);
+		if ((value == null) || (value instanceof Time)) {
+			return (Time)value;
+		} else if (value instanceof LocalTime) {
+			return Time.valueOf((LocalTime)value);
+		} else if (value instanceof String) {
+			return Time.valueOf(((String)value).trim());
+		}
+		Timestamp t = getTimestamp(columnIndex);
+		return Time.valueOf(t.toLocalDateTime().toLocalTime());
+	}
+
+	public Timestamp getTimestamp(int columnIndex) throws SQLException {
+		Object value = getObject(columnIndex);
+		if ((value == null) || (value instanceof Timestamp)) {
+			return (Timestamp)value;
+		} else if (value instanceof java.util.Date) {
+			return new Timestamp(((java.util.Date)value).getTime());
+		} else if (value instanceof LocalDateTime) {
+			return Timestamp.valueOf((LocalDateTime)value);
+		} else if (value instanceof LocalDate) {
+			return Timestamp.valueOf(((LocalDate)value).atStartOfDay());
+		} else if (value instanceof OffsetDateTime) {
+			return Timestamp.from(((OffsetDateTime)value).toInstant());
+		} else if (value instanceof String) {
+			return Timestamp.valueOf(((String)value).trim());
+		}
+		throw cannotConvert(value, "Timestamp");
+	}
+
+	// the copied value was read in the default time zone, so move its wall clock time into the calendar's
+	public Timestamp getTimestamp(int columnIndex, Calendar cal) throws SQLException {
+		Timestamp t = getTimestamp(columnIndex);
+		if ((t == null) || (cal == null)) {
+			return t;
+		}
+		return Timestamp.from(t.toLocalDateTime().atZone(cal.getTimeZone().toZoneId()).toInstant());
+	}
+
+	public Date getDate(int columnIndex, Calendar cal) throws SQLException {
+		return getDate(columnIndex);
+	}
+
+	public Time getTime(int columnIndex, Calendar cal) throws SQLException {
+		return getTime(columnIndex);
+	}
+
+	public Object getObject(String columnLabel) throws SQLException {return getObject(findColumn(columnLabel));}
+	public Object getObject(String columnLabel, Map<String, Class<?>> map) throws SQLException {return getObject(findColumn(columnLabel));}
+	public <T> T getObject(String columnLabel, Class<T> type) throws SQLException {return getObject(findColumn(columnLabel), type);}
+	public String getString(String columnLabel) throws SQLException {return getString(findColumn(columnLabel));}
+	public String getNString(String columnLabel) throws SQLException {return getString(findColumn(columnLabel));}
+	public boolean getBoolean(String columnLabel) throws SQLException {return getBoolean(findColumn(columnLabel));}
+	public byte getByte(String columnLabel) throws SQLException {return getByte(findColumn(columnLabel));}
+	public short getShort(String columnLabel) throws SQLException {return getShort(findColumn(columnLabel));}
+	public int getInt(String columnLabel) throws SQLException {return getInt(findColumn(columnLabel));}
+	public long getLong(String columnLabel) throws SQLException {return getLong(findColumn(columnLabel));}
+	public float getFloat(String columnLabel) throws SQLException {return getFloat(findColumn(columnLabel));}
+	public double getDouble(String columnLabel) throws SQLException {return getDouble(findColumn(columnLabel));}
+	public BigDecimal getBigDecimal(String columnLabel) throws SQLException {return getBigDecimal(findColumn(columnLabel));}
+	@Deprecated
+	public BigDecimal getBigDecimal(String columnLabel, int scale) throws SQLException {return getBigDecimal(findColumn(columnLabel), scale);}
+	public byte[] getBytes(String columnLabel) throws SQLException {return getBytes(findColumn(columnLabel));}
+	public Date getDate(String columnLabel) throws SQLException {return getDate(findColumn(columnLabel));}
+	public Date getDate(String columnLabel, Calendar cal) throws SQLException {return getDate(findColumn(columnLabel), cal);}
+	public Time getTime(String columnLabel) throws SQLException {return getTime(findColumn(columnLabel));}
+	public Time getTime(String columnLabel, Calendar cal) throws SQLException {return getTime(findColumn(columnLabel), cal);}
+	public Timestamp getTimestamp(String columnLabel) throws SQLException {return getTimestamp(findColumn(columnLabel));}
+	public Timestamp getTimestamp(String columnLabel, Calendar cal) throws SQLException {return getTimestamp(findColumn(columnLabel), cal);}
+
+	private Number getNumber(int columnIndex) throws SQLException {
+		Object value = getObject(columnIndex);
+		if ((value == null) || (value instanceof Number)) {
+			return (Number)value;
+		} else if (value instanceof Boolean) {
+			return ((Boolean)value)?1:0;
+		} else if (value instanceof String) {
+			try {
+				return new BigDecimal(((String)value).trim());
+			} catch(NumberFormatException e) {
+				throw cannotConvert(value, "a number");
+			}
+		}
+		throw cannotConvert(value, "a number");
+	}
+
+	private static SQLException cannotConvert(Object value, String type) {
+		return new SQLException("Can't convert " + value.getClass().getName() + " to " + type);
+	}
+
+	private static SQLException unsupported() {
+		return new SQLFeatureNotSupportedException("Not supported on buffered rows");
+	}
+
+	// everything else is navigation, streams, LOBs and updates, none of which the mappers use
+	public boolean absolute(int arg0) throws SQLException {throw unsupported();}
+	public void afterLast() throws SQLException {throw unsupported();}
+	public void beforeFirst() throws SQLException {throw unsupported();}
+	public void cancelRowUpdates() throws SQLException {throw unsupported();}
+	public void deleteRow() throws SQLException {throw unsupported();}
+	public boolean first() throws SQLException {throw unsupported();}
+	public Array getArray(String arg0) throws SQLException {throw unsupported();}
+	public Array getArray(int arg0) throws SQLException {throw unsupported();}
+	public InputStream getAsciiStream(String arg0) throws SQLException {throw unsupported();}
+	public InputStream getAsciiStream(int arg0) throws SQLException {throw unsupported();}
+	public InputStream getBinaryStream(String arg0) throws SQLException {throw unsupported();}
+	public InputStream getBinaryStream(int arg0) throws SQLException {throw unsupported();}
+	public Blob getBlob(String arg0) throws SQLException {throw unsupported();}
+	public Blob getBlob(int arg0) throws SQLException {throw unsupported();}
+	public Reader getCharacterStream(String arg0) throws SQLException {throw unsupported();}
+	public Reader getCharacterStream(int arg0) throws SQLException {throw unsupported();}
+	public Clob getClob(String arg0) throws SQLException {throw unsupported();}
+	public Clob getClob(int arg0) throws SQLException {throw unsupported();}
+	public String getCursorName() throws SQLException {throw unsupported();}
+	public Reader getNCharacterStream(String arg0) throws SQLException {throw unsupported();}
+	public Reader getNCharacterStream(int arg0) throws SQLException {throw unsupported();}
+	public NClob getNClob(String arg0) throws SQLException {throw unsupported();}
+	public NClob getNClob(int arg0) throws SQLException {throw unsupported();}
+	public Ref getRef(String arg0) throws SQLException {throw unsupported();}
+	public Ref getRef(int arg0) throws SQLException {throw unsupported();}
+	public RowId getRowId(String arg0) throws SQLException {throw unsupported();}
+	public RowId getRowId(int arg0) throws SQLException {throw unsupported();}
+	public SQLXML getSQLXML(String arg0) throws SQLException {throw unsupported();}
+	public SQLXML getSQLXML(int arg0) throws SQLException {throw unsupported();}
+	public URL getURL(String arg0) throws SQLException {throw unsupported();}
+	public URL getURL(int arg0) throws SQLException {throw unsupported();}
+	@Deprecated
+	public InputStream getUnicodeStream(String arg0) throws SQLException {throw unsupported();}
+	@Deprecated
+	public InputStream getUnicodeStream(int arg0) throws SQLException {throw unsupported();}
+	public void insertRow() throws SQLException {throw unsupported();}
+	public boolean last() throws SQLException {throw unsupported();}
+	public void moveToCurrentRow() throws SQLException {throw unsupported();}
+	public void moveToInsertRow() throws SQLException {throw unsupported();}
+	public boolean previous() throws SQLException {throw unsupported();}
+	public void refreshRow() throws SQLException {throw unsupported();}
+	public boolean relative(int arg0) throws SQLException {throw unsupported();}
+	public boolean rowDeleted() throws SQLException {throw unsupported();}
+	public boolean rowInserted() throws SQLException {throw unsupported();}
+	public boolean rowUpdated() throws SQLException {throw unsupported();}
+	public void updateArray(String arg0, Array arg1) throws SQLException {throw unsupported();}
+	public void updateArray(int arg0, Array arg1) throws SQLException {throw unsupported();}
+	public void updateAsciiStream(String arg0, InputStream arg1, int arg2) throws SQLException {throw unsupported();}
+	public void updateAsciiStream(String arg0, InputStream arg1, long arg2) throws SQLException {throw unsupported();}
+	public void updateAsciiStream(String arg0, InputStream arg1) throws SQLException {throw unsupported();}
+	public void updateAsciiStream(int arg0, InputStream arg1, int arg2) throws SQLException {throw unsupported();}
+	public void updateAsciiStream(int arg0, InputStream arg1, long arg2) throws SQLException {throw unsupported();}
+	public void updateAsciiStream(int arg0, InputStream arg1) throws SQLException {throw unsupported();}
+	public void updateBigDecimal(String arg0, BigDecimal arg1) throws SQLException {throw unsupported();}
+	public void updateBigDecimal(int arg0, BigDecimal arg1) throws SQLException {throw unsupported();}
+	public void updateBinaryStream(String arg0, InputStream arg1, int arg2) throws SQLException {throw unsupported();}
+	public void updateBinaryStream(String arg0, InputStream arg1, long arg2) throws SQLException {throw unsupported();}
+	public void updateBinaryStream(String arg0, InputStream arg1) throws SQLException {throw unsupported();}
+	public void updateBinaryStream(int arg0, InputStream arg1, int arg2) throws SQLException {throw unsupported();}
+	public void updateBinaryStream(int arg0, InputStream arg1, long arg2) throws SQLException {throw unsupported();}
+	public void updateBinaryStream(int arg0, InputStream arg1) throws SQLException {throw unsupported();}
+	public void updateBlob(String arg0, InputStream arg1, long arg2) throws SQLException {throw unsupported();}
+	public void updateBlob(String arg0, InputStream arg1) throws SQLException {throw unsupported();}
+	public void updateBlob(String arg0, Blob arg1) throws SQLException {throw unsupported();}
+	public void updateBlob(int arg0, InputStream arg1, long arg2) throws SQLException {throw unsupported();}
+	public void updateBlob(int arg0, InputStream arg1) throws SQLException {throw unsupported();}
+	public void updateBlob(int arg0, Blob arg1) throws SQLException {throw unsupported();}
+	public void updateBoolean(String arg0, boolean arg1) throws SQLException {throw unsupported();}
+	public void updateBoolean(int arg0, boolean arg1) throws SQLException {throw unsupported();}
+	public void updateByte(String arg0, byte arg1) throws SQLException {throw unsupported();}
+	public void updateByte(int arg0, byte arg1) throws SQLException {throw unsupported();}
+	public void updateBytes(String arg0, byte[] arg1) throws SQLException {throw unsupported();}
+	public void updateBytes(int arg0, byte[] arg1) throws SQLException {throw unsupported();}
+	public void updateCharacterStream(String arg0, Reader arg1, int arg2) throws SQLException {throw unsupported();}
+	public void updateCharacterStream(String arg0, Reader arg1, long arg2) throws SQLException {throw unsupported();}
+	public void updateCharacterStream(String arg0, Reader arg1) throws SQLException {throw unsupported();}
+	public void updateCharacterStream(int arg0, Reader arg1, int arg2) throws SQLException {throw unsupported();}
+	public void updateCharacterStream(int arg0, Reader arg1, long arg2) throws SQLException {throw unsupported();}
+	public void updateCharacterStream(int arg0, Reader arg1) throws SQLException {throw unsupported();}
+	public void updateClob(String arg0, Reader arg1, long arg2) throws SQLException {throw unsupported();}
+	public void updateClob(String arg0, Reader arg1) throws SQLException {throw unsupported();}
+	public void updateClob(String arg0, Clob arg1) throws SQLException {throw unsupported();}
+	public void updateClob(int arg0, Reader arg1, long arg2) throws SQLException {throw unsupported();}
+	public void updateClob(int arg0, Reader arg1) throws SQLException {throw unsupported();}
+	public void updateClob(int arg0, Clob arg1) throws SQLException {throw unsupported();}
+	public void updateDate(String arg0, Date arg1) throws SQLException {throw unsupported();}
+	public void updateDate(int arg0, Date arg1) throws SQLException {throw unsupported();}
+	public void updateDouble(String arg0, double arg1) throws SQLException {throw unsupported();}
+	public void updateDouble(int arg0, double arg1) throws SQLException {throw unsupported();}
+	public void updateFloat(String arg0, float arg1) throws SQLException {throw unsupported();}
+	public void updateFloat(int arg0, float arg1) throws SQLException {throw unsupported();}
+	public void updateInt(String arg0, int arg1) throws SQLException {throw unsupported();}
+	public void updateInt(int arg0, int arg1) throws SQLException {throw unsupported();}
+	public void updateLong(String arg0, long arg1) throws SQLException {throw unsupported();}
+	public void updateLong(int arg0, long arg1) throws SQLException {throw unsupported();}
+	public void updateNCharacterStream(String arg0, Reader arg1, long arg2) throws SQLException {throw unsupported();}
+	public void updateNCharacterStream(String arg0, Reader arg1) throws SQLException {throw unsupported();}
+	public void updateNCharacterStream(int arg0, Reader arg1, long arg2) throws SQLException {throw unsupported();}
+	public void updateNCharacterStream(int arg0, Reader arg1) throws SQLException {throw unsupported();}
+	public void updateNClob(String arg0, Reader arg1, long arg2) throws SQLException {throw unsupported();}
+	public void updateNClob(String arg0, Reader arg1) throws SQLException {throw unsupported();}
+	public void updateNClob(String arg0, NClob arg1) throws SQLException {throw unsupported();}
+	public void updateNClob(int arg0, Reader arg1, long arg2) throws SQLException {throw unsupported();}
+	public void updateNClob(int arg0, Reader arg1) throws SQLException {throw unsupported();}
+	public void updateNClob(int arg0, NClob arg1) throws SQLException {throw unsupported();}
+	public void updateNString(String arg0, String arg1) throws SQLException {throw unsupported();}
+	public void updateNString(int arg0, String arg1) throws SQLException {throw unsupported();}
+	public void updateNull(String arg0) throws SQLException {throw unsupported();}
+	public void updateNull(int arg0) throws SQLException {throw unsupported();}
+	public void updateObject(String arg0, Object arg1, int arg2) throws SQLException {throw unsupported();}
+	public void updateObject(String arg0, Object arg1) throws SQLException {throw unsupported();}
+	public void updateObject(int arg0, Object arg1, int arg2) throws SQLException {throw unsupported();}
+	public void updateObject(int arg0, Object arg1) throws SQLException {throw unsupported();}
+	public void updateRef(String arg0, Ref arg1) throws SQLException {throw unsupported();}
+	public void updateRef(int arg0, Ref arg1) throws SQLException {throw unsupported();}
+	public void updateRow() throws SQLException {throw unsupported();}
+	public void updateRowId(String arg0, RowId arg1) throws SQLException {throw unsupported();}
+	public void updateRowId(int arg0, RowId arg1) throws SQLException {throw unsupported();}
+	public void updateSQLXML(String arg0, SQLXML arg1) throws SQLException {throw unsupported();}
+	public void updateSQLXML(int arg0, SQLXML arg1) throws SQLException {throw unsupported();}
+	public void updateShort(String arg0, short arg1) throws SQLException {throw unsupported();}
+	public void updateShort(int arg0, short arg1) throws SQLException {throw unsupported();}
+	public void updateString(String arg0, String arg1) throws SQLException {throw unsupported();}
+	public void updateString(int arg0, String arg1) throws SQLException {throw unsupported();}
+	public void updateTime(String arg0, Time arg1) throws SQLException {throw unsupported();}
+	public void updateTime(int arg0, Time arg1) throws SQLException {throw unsupported();}
+	public void updateTimestamp(String arg0, Timestamp arg1) throws SQLException {throw unsupported();}
+	public void updateTimestamp(int arg0, Timestamp arg1) throws SQLException {throw unsupported();}
+
+	/** What the buffered rows of one result set share. */
+	// the column layout and a copy of the driver's metadata, so nothing on the mapping threads
+	// reaches back into the driver's objects while the reader is still using the connection
+	public static class Shape {
+		private MetaData metaData;
+		private int columnCount;
+		private Map<String, Integer> columns = new HashMap<>();
+
+		public Shape(ResultSet rs) throws SQLException {
+			this.metaData = new MetaData(rs.getMetaData());
+			this.columnCount = metaData.getColumnCount();
+			// like drivers, the first column with a label wins
+			for(int i = columnCount; i >= 1; i--) {
+				columns.put(metaData.getColumnLabel(i).toLowerCase(), i);
+			}
+		}
+
+		public int getColumnCount() {
+			return columnCount;
+		}
+	}
+
+	private static class MetaData implements ResultSetMetaData {
+		private String[] labels, names, tableNames, schemaNames, catalogNames, typeNames, classNames;
+		private int[] types, precisions, scales, displaySizes, nullables;
+		private boolean[] autoIncrements, caseSensitives, searchables, currencies, signeds, readOnlies, writables, definitelyWritables;
+
+		MetaData(ResultSetMetaData md) throws SQLException {
+			int count = md.getColumnCount();
+			labels = new String[count];
+			names = new String[count];
+			tableNames = new String[count];
+			schemaNames = new String[count];
+			catalogNames = new String[count];
+			typeNames = new String[count];
+			classNames = new String[count];
+			types = new int[count];
+			precisions = new int[count];
+			scales = new int[count];
+			displaySizes = new int[count];
+			nullables = new int[count];
+			autoIncrements = new boolean[count];
+			caseSensitives = new boolean[count];
+			searchables = new boolean[count];
+			currencies = new boolean[count];
+			signeds = new boolean[count];
+			readOnlies = new boolean[count];
+			writables = new boolean[count];
+			definitelyWritables = new boolean[count];
+			for(int i = 0; i < count; i++) {
+				int column = i + 1;
+				labels[i] = md.getColumnLabel(column);
+				names[i] = md.getColumnName(column);
+				types[i] = md.getColumnType(column);
+				// the rest is descriptive, and not every driver fills it in
+				try {
+					tableNames[i] = md.getTableName(column);
+					schemaNames[i] = md.getSchemaName(column);
+					catalogNames[i] = md.getCatalogName(column);
+					typeNames[i] = md.getColumnTypeName(column);
+					classNames[i] = md.getColumnClassName(column);
+					precisions[i] = md.getPrecision(column);
+					scales[i] = md.getScale(column);
+					displaySizes[i] = md.getColumnDisplaySize(column);
+					nullables[i] = md.isNullable(column);
+					autoIncrements[i] = md.isAutoIncrement(column);
+					caseSensitives[i] = md.isCaseSensitive(column);
+					searchables[i] = md.isSearchable(column);
+					currencies[i] = md.isCurrency(column);
+					signeds[i] = md.isSigned(column);
+					readOnlies[i] = md.isReadOnly(column);
+					writables[i] = md.isWritable(column);
+					definitelyWritables[i] = md.isDefinitelyWritable(column);
+				} catch(SQLException | RuntimeException e) {
+					nullables[i] = columnNullableUnknown;
+				}
+			}
+		}
+
+		private int index(int column) throws SQLException {
+			if ((column < 1) || (column > labels.length)) {
+				throw new SQLException("No column " + column);
+			}
+			return column - 1;
+		}
+
+		public int getColumnCount() {
+			return labels.length;
+		}
+
+		public String getColumnLabel(int column) throws SQLException {
+			return labels[index(column)];
+		}
+
+		public String getColumnName(int column) throws SQLException {
+			return names[index(column)];
+		}
+
+		public int getColumnType(int column) throws SQLException {
+			return types[index(column)];
+		}
+
+		public String getColumnTypeName(int column) throws SQLException {
+			return typeNames[index(column)];
+		}
+
+		public String getColumnClassName(int column) throws SQLException {
+			return classNames[index(column)];
+		}
+
+		public String getTableName(int column) throws SQLException {
+			return tableNames[index(column)];
+		}
+
+		public String getSchemaName(int column) throws SQLException {
+			return schemaNames[index(column)];
+		}
+
+		public String getCatalogName(int column) throws SQLException {
+			return catalogNames[index(column)];
+		}
+
+		public int getPrecision(int column) throws SQLException {
+			return precisions[index(column)];
+		}
+
+		public int getScale(int column) throws SQLException {
+			return scales[index(column)];
+		}
+
+		public int getColumnDisplaySize(int column) throws SQLException {
+			return displaySizes[index(column)];
+		}
+
+		public int isNullable(int column) throws SQLException {
+			return nullables[index(column)];
+		}
+
+		public boolean isAutoIncrement(int column) throws SQLException {
+			return autoIncrements[index(column)];
+		}
+
+		public boolean isCaseSensitive(int column) throws SQLException {
+			return caseSensitives[index(column)];
+		}
+
+		public boolean isSearchable(int column) throws SQLException {
+			return searchables[index(column)];
+		}
+
+		public boolean isCurrency(int column) throws SQLException {
+			return currencies[index(column)];
+		}
+
+		public boolean isSigned(int column) throws SQLException {
+			return signeds[index(column)];
+		}
+
+		public boolean isReadOnly(int column) throws SQLException {
+			return readOnlies[index(column)];
+		}
+
+		public boolean isWritable(int column) throws SQLException {
+			return writables[index(column)];
+		}
+
+		public boolean isDefinitelyWritable(int column) throws SQLException {
+			return definitelyWritables[index(column)];
+		}
+
+		public <T> T unwrap(Class<T> iface) throws SQLException {
+			if (iface.isInstance(this)) {
+				return iface.cast(this);
+			}
+			throw new SQLException("Not a wrapper for " + iface.getName());
+		}
+
+		public boolean isWrapperFor(Class<?> iface) {
+			return iface.isInstance(this);
+		}
+	}
+}
@@ -14,30 +14,102 @@ package dbmapper.util;
  * limitations under the License.
  */
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
+import java.sql.ResultSetMetaData;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
+
+import dbmapper.DBMapperException;
+import dbmapper.TypeConverter;
 
 public class ClassHelper {
+	private static final MethodHandles.Lookup lookup = MethodHandles.lookup();
+	
+	private static final int MAXIMUM_ROW_MAPPERS = 64;
+	
+	private static Map<Class<?>, EntityAccessors> generatedAccessors;
+	
 	private Class<?> clazz;
+	private EntityAccessors accessors;
 	private Map<String, Setter> setters = new HashMap<>();
 	private Map<String, Getter> propertyGetters = new HashMap<>();
+	// least recently used shapes go first, so converters or engines created per mapper can't grow it forever
+	private Map<RowShape, RowMapper<?>> rowMappers = Collections.synchronizedMap(new LinkedHashMap<RowShape, RowMapper<?>>(16, 0.75f, true) {
+		protected boolean removeEldestEntry(Map.Entry<RowShape, RowMapper<?>> eldest) {
+			return size() > MAXIMUM_ROW_MAPPERS;
+		}
+	});
 	
 	public ClassHelper(Class<?> clazz) {
 		this.clazz = clazz;
+		this.accessors = getGeneratedAccessors(clazz);
 		
-		for(Method method : clazz.getMethods()) {
-			if (isSetter(method)) {
-				setters.put(method.getName(), new Setter(method));
-			} else if (isGetter(method)) {
-				propertyGetters.put(getPropertyName(method), new Getter(method));
-				propertyGetters.put(getPropertyName(method), new Getter(method));				
+		if (accessors != null) {
+			for(Setter setter : accessors.getSetters()) {
+				setters.put(setter.getName(), setter);
+			}
+			for(Getter getter : accessors.getGetters()) {
+				propertyGetters.put(getPropertyName(getter.getName()), getter);
+			}
+		} else {
+			for(Method method : clazz.getMethods()) {
+				if (isSetter(method)) {
+					setters.put(method.getName(), createSetter(method));
+				} else if (isGetter(method)) {
+					propertyGetters.put(getPropertyName(method.getName()), createGetter(method));
+				}
 			}
-		}		
+		}
 	}
 	
-	private String getPropertyName(Method method) {
-		String name = method.getName();
+	/** Register accessors for a class, in place of the ones found through META-INF/services. */
+	public static void register(EntityAccessors entityAccessors) {
+		getGeneratedAccessors(entityAccessors.getEntityClass());
+		generatedAccessors.put(entityAccessors.getEntityClass(), entityAccessors);
+	}
+	
+	private static synchronized EntityAccessors getGeneratedAccessors(Class<?> clazz) {
+		if (generatedAccessors == null) {
+			generatedAccessors = Collections.synchronizedMap(new HashMap<>());
+			// an entry naming a class that's gone (e.g. renamed since an incremental build) is skipped, and
+			// its entity falls back to the lambda accessors
+			Iterator<EntityAccessors> i = ServiceLoader.load(EntityAccessors.class).iterator();
+			while(true) {
+				try {
+					if (!i.hasNext()) {
+						break;
+					}
+					EntityAccessors entityAccessors = i.next();
+					generatedAccessors.put(entityAccessors.getEntityClass(), entityAccessors);
+				} catch(ServiceConfigurationError | LinkageError e) {
+					continue;
+				}
+			}
+		}
+		return generatedAccessors.get(clazz);
+	}
+	
+	private String getPropertyName(String name) {
 		if ((name.startsWith("set") || name.startsWith("get")) && name.length() > 3) {
 			name = StringUtils.uncapitalize(name.substring(3));
 		} else if (name.startsWith("is") && name.length() > 2) {
@@ -47,6 +119,9 @@ public class ClassHelper {
 	}
 	
 	public Object newInstance() throws Exception {
+		if (accessors != null) {
+			return accessors.newInstance();
+		}
 		return clazz.newInstance();
 	}
 	
@@ -54,6 +129,14 @@ public class ClassHelper {
 		return clazz;
 	}
 	
+	public Collection<Setter> getSetters() {
+		return setters.values();
+	}
+	
+	public Getter getGetterForSetter(Setter setter) {
+		return propertyGetters.get(getPropertyName(setter.getName()));
+	}
+	
 	public Setter getSetter(String methodName) {
 		return setters.get(methodName);
 	}
@@ -66,6 +149,107 @@ public class ClassHelper {
 		return setters.get("set" + StringUtils.capitalize(propertyName));
 	}
 	
+	// null stands for a column that isn't to be mapped
+	public Setter getSetterForColumn(String columnName) {
+		if (columnName == null) {
+			return null;
+		}
+		return setters.get("set" + StringUtils.capitalize(StringUtils.fromUnderscoresToCamelCase(columnName)));
+	}
+	
+	/** Returns the cached mapping plan for this column shape, building it on first use. */
+	public <T> RowMapper<T> getRowMapper(ResultSetMetaData rsmd, TypeConverter typeConverter, MappingEngine mappingEngine) throws Exception {
+		String[] columnNames = new String[rsmd.getColumnCount()];
+		for(int i = 0; i < columnNames.length; i++) {
+			columnNames[i] = rsmd.getColumnName(i + 1);
+		}
+		return getRowMapper(columnNames, typeConverter, mappingEngine);
+	}
+	
+	/** Like getRowMapper(ResultSetMetaData, ...), for columns named by position.  A null name leaves that column unmapped. */
+	@SuppressWarnings("unchecked")
+	public <T> RowMapper<T> getRowMapper(String[] columnNames, TypeConverter typeConverter, MappingEngine mappingEngine) throws Exception {
+		RowShape shape = new RowShape(typeConverter, mappingEngine, columnNames);
+		// built under the map's lock, so callers racing on a new shape don't each build one
+		return (RowMapper<T>)rowMappers.computeIfAbsent(shape, key -> {
+			try {
+				return mappingEngine.createRowMapper(this, typeConverter, columnNames);
+			} catch(RuntimeException e) {
+				throw e;
+			} catch(Exception e) {
+				throw new DBMapperException(e);
+			}
+		});
+	}
+	
+	
+	// getters and setters are invoked once per column per row, so rather than going through
+	// Method.invoke (varargs array, boxing, access checks) bind them to lambdas the JIT can inline.
+	// int, long and double properties also get primitive accessors so they never box.
+	@SuppressWarnings("unchecked")
+	private static Getter createGetter(Method method) {
+		Class<?> type = method.getReturnType(), declaringClass = method.getDeclaringClass();
+		Getter getter = new Getter(method, (Function<Object, Object>)createAccessor(method, Function.class, "apply",
+			MethodType.methodType(Object.class, Object.class), MethodType.methodType(wrap(type), declaringClass)));
+		if (type == int.class) {
+			getter.setIntAccessor((ToIntFunction<Object>)createAccessor(method, ToIntFunction.class, "applyAsInt",
+				MethodType.methodType(int.class, Object.class), MethodType.methodType(int.class, declaringClass)));
+		} else if (type == long.class) {
+			getter.setLongAccessor((ToLongFunction<Object>)createAccessor(method, ToLongFunction.class, "applyAsLong",
+				MethodType.methodType(long.class, Object.class), MethodType.methodType(long.class, declaringClass)));
+		} else if (type == double.class) {
+			getter.setDoubleAccessor((ToDoubleFunction<Object>)createAccessor(method, ToDoubleFunction.class, "applyAsDouble",
+				MethodType.methodType(double.class, Object.class), MethodType.methodType(double.class, declaringClass)));
+		}
+		return getter;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Setter createSetter(Method method) {
+		Class<?> type = method.getParameterTypes()[0], declaringClass = method.getDeclaringClass();
+		Setter setter = new Setter(method, (BiConsumer<Object, Object>)createAccessor(method, BiConsumer.class, "accept",
+			MethodType.methodType(void.class, Object.class, Object.class), MethodType.methodType(void.class, declaringClass, wrap(type))));
+		if (type == int.class) {
+			setter.setIntAccessor((ObjIntConsumer<Object>)createAccessor(method, ObjIntConsumer.class, "accept",
+				MethodType.methodType(void.class, Object.class, int.class), MethodType.methodType(void.class, declaringClass, int.class)));
+		} else if (type == long.class) {
+			setter.setLongAccessor((ObjLongConsumer<Object>)createAccessor(method, ObjLongConsumer.class, "accept",
+				MethodType.methodType(void.class, Object.class, long.class), MethodType.methodType(void.class, declaringClass, long.class)));
+		} else if (type == double.class) {
+			setter.setDoubleAccessor((ObjDoubleConsumer<Object>)createAccessor(method, ObjDoubleConsumer.class, "accept",
+				MethodType.methodType(void.class, Object.class, double.class), MethodType.methodType(void.class, declaringClass, double.class)));
+		}
+		return setter;
+	}
+	
+	// returns null, meaning fall back to reflection, for methods the lookup can't reach
+	private static Object createAccessor(Method method, Class<?> interfaceType, String interfaceMethod, 
+	MethodType erasedType, MethodType instantiatedType) {
+		if (!isAccessorReachable(method)) return null;
+		try {
+			MethodHandle handle = lookup.unreflect(method);
+			CallSite site = LambdaMetafactory.metafactory(lookup, interfaceMethod,
+				MethodType.methodType(interfaceType), erasedType, handle, instantiatedType);
+			return site.getTarget().invoke();
+		} catch(Throwable t) {
+			return null;
+		}
+	}
+	
+	// the generated lambda class links against the declaring class through this class's loader,
+	// so classes from a loader we can't see (e.g. a child webapp loader) must stay reflective
+	private static boolean isAccessorReachable(Method method) {
+		Class<?> declaringClass = method.getDeclaringClass();
+		try {
+			return Class.forName(declaringClass.getName(), false, ClassHelper.class.getClassLoader()) == declaringClass;
+		} catch(ClassNotFoundException e) {
+			return false;
+		}
+	}
+	
+	static Class<?> wrap(Class<?> type) {
+		return MethodType.methodType(type).wrap().returnType();
+	}
 	
 	private boolean isSetter(Method method) {
 		if (!method.getName().startsWith("set")) return false;
@@ -83,4 +267,30 @@ public class ClassHelper {
 		
 		return false;
 	}
+	
+	private static class RowShape {
+		private TypeConverter typeConverter;
+		private MappingEngine mappingEngine;
+		private String[] columnNames;
+		private int hashCode;
+		
+		RowShape(TypeConverter typeConverter, MappingEngine mappingEngine, String[] columnNames) {
+			this.typeConverter = typeConverter;
+			this.mappingEngine = mappingEngine;
+			this.columnNames = columnNames;
+			this.hashCode = 31 * (31 * System.identityHashCode(typeConverter) + System.identityHashCode(mappingEngine)) 
+				+ Arrays.hashCode(columnNames);
+		}
+		
+		public int hashCode() {
+			return hashCode;
+		}
+		
+		public boolean equals(Object o) {
+			if (!(o instanceof RowShape)) return false;
+			RowShape other = (RowShape)o;
+			return (typeConverter == other.typeConverter) && (mappingEngine == other.mappingEngine) 
+				&& Arrays.equals(columnNames, other.columnNames);
+		}
+	}
 }
\ No newline at end of file
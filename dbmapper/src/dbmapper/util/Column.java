@@ -20,6 +20,7 @@ public class Column {
 	private boolean autoIncrement;
 	private boolean primaryKey;
 	private String propertyName;
+	private int ordinalPosition;
 	
 	public String getName() {
 		return name;
@@ -52,4 +53,12 @@ public class Column {
 	public void setPropertyName(String propertyName) {
 		this.propertyName = propertyName;
 	}
-}
\ No newline at end of file
+
+	public int getOrdinalPosition() {
+		return ordinalPosition;
+	}
+
+	public void setOrdinalPosition(int ordinalPosition) {
+		this.ordinalPosition = ordinalPosition;
+	}
+}
@@ -0,0 +1,257 @@
+package dbmapper.util;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.lang.reflect.Modifier;
+import java.net.URI;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileManager;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+
+import dbmapper.ColumnReader;
+import dbmapper.ColumnWriter;
+import dbmapper.DBMapperException;
+import dbmapper.PrimitiveTypeConverter;
+import dbmapper.TypeConverter;
+
+// generates a dedicated class per (class, column layout) with straight-line setter and getter
+// calls, and one column reader call site per column, so every generated call site only ever
+// sees one receiver type and stays monomorphic.
+// the source is compiled in memory with the system java compiler and loaded into its own
+// class loader.  anything that can't be generated (no compiler available, non-public classes,
+// classes the compiler can't see) falls back to the DefaultMappingEngine.
+public class CompilingMappingEngine implements MappingEngine {
+	private static AtomicInteger sequence = new AtomicInteger();
+	
+	private MappingEngine fallback = new DefaultMappingEngine();
+	private JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+	
+	@SuppressWarnings("unchecked")
+	public <T> RowMapper<T> createRowMapper(ClassHelper classHelper, TypeConverter typeConverter, String[] columnNames) throws Exception {
+		Class<?> clazz = classHelper.getClazz();
+		if (!canGenerate(clazz)) {
+			return fallback.createRowMapper(classHelper, typeConverter, columnNames);
+		}
+		
+		String className = generatedClassName(clazz, "RowMapper");
+		String type = clazz.getCanonicalName();
+		List<ColumnReader<?>> readers = new ArrayList<>();
+		StringBuilder b = new StringBuilder();
+		appendClassHeader(b, className, "dbmapper.util.RowMapper<" + type + ">", "dbmapper.ColumnReader<?>[]", "readers");
+		b.append("\tpublic ").append(type).append(" map(java.sql.ResultSet rs) throws Exception {\n");
+		b.append("\t\treturn map(rs, new ").append(type).append("());\n\t}\n\n");
+		b.append("\tpublic boolean canRefill() {\n\t\treturn true;\n\t}\n\n");
+		b.append("\tpublic ").append(type).append(" map(java.sql.ResultSet rs, ").append(type).append(" object) throws Exception {\n");
+		for(int i = 0; i < columnNames.length; i++) {
+			Setter setter = classHelper.getSetterForColumn(columnNames[i]);
+			if (setter != null) {
+				ColumnReader<?> reader = typeConverter.getColumnReader(setter.getType());
+				int kind = PrimitiveKind.of(setter.getType(), reader);
+				if (kind == PrimitiveKind.NONE) {
+					b.append("\t\tobject.").append(setter.getName()).append("((").append(boxedName(setter.getType())).append(")");
+					b.append("readers[").append(readers.size()).append("].getValue(rs, ").append(i + 1).append("));\n");
+				} else {
+					String primitive = setter.getType().getName(), suffix = StringUtils.capitalize(primitive);
+					b.append("\t\t").append(primitive).append(" v").append(readers.size()).append(" = ((");
+					b.append(PrimitiveTypeConverter.class.getCanonicalName()).append(".Of").append(suffix).append(")readers[");
+					b.append(readers.size()).append("]).get").append(suffix).append("(rs, ").append(i + 1).append(");\n");
+					b.append("\t\tif (rs.wasNull()) throw new dbmapper.DBMapperException(\"Column ").append(i + 1);
+					b.append(" ['").append(javaString(columnNames[i])).append("']");
+					b.append(" is null, but ").append(setter.getName()).append(" takes a primitive\");\n");
+					b.append("\t\tobject.").append(setter.getName()).append("(v").append(readers.size()).append(");\n");
+				}
+				readers.add(reader);
+			}
+		}
+		b.append("\t\treturn object;\n\t}\n}\n");
+		
+		try {
+			return (RowMapper<T>)compile(clazz, className, b.toString())
+				.getConstructor(ColumnReader[].class).newInstance((Object)readers.toArray(new ColumnReader<?>[readers.size()]));
+		} catch(Exception e) {
+			return fallback.createRowMapper(classHelper, typeConverter, columnNames);
+		}
+	}
+	
+	public Binder createBinder(ClassHelper classHelper, TypeConverter typeConverter, List<Getter> getters) throws Exception {
+		Class<?> clazz = classHelper.getClazz();
+		if (!canGenerate(clazz)) {
+			return fallback.createBinder(classHelper, typeConverter, getters);
+		}
+
+		String className = generatedClassName(clazz, "Binder");
+		String type = clazz.getCanonicalName();
+		StringBuilder b = new StringBuilder();
+		appendClassHeader(b, className, "dbmapper.util.Binder", "dbmapper.ColumnWriter[]", "writers");
+		b.append("\t@SuppressWarnings(\"unchecked\")\n");
+		b.append("\tpublic void bind(java.sql.PreparedStatement ps, int offset, Object o) throws Exception {\n");
+		b.append("\t\t").append(type).append(" object = (").append(type).append(")o;\n");
+		ColumnWriter<?>[] writers = new ColumnWriter<?>[getters.size()];
+		for(int i = 0; i < getters.size(); i++) {
+			Getter getter = getters.get(i);
+			writers[i] = typeConverter.getColumnWriter(getter.getType());
+			if (PrimitiveKind.of(getter.getType(), writers[i]) == PrimitiveKind.NONE) {
+				b.append("\t\twriters[").append(i).append("].setValue(ps, offset + ").append(i + 1).append(", object.");
+			} else {
+				String suffix = StringUtils.capitalize(getter.getType().getName());
+				b.append("\t\t((").append(PrimitiveTypeConverter.class.getCanonicalName()).append(".Of").append(suffix);
+				b.append(")writers[").append(i).append("]).set").append(suffix).append("(ps, offset + ").append(i + 1).append(", object.");
+			}
+			b.append(getter.getName()).append("());\n");
+		}
+		b.append("\t}\n}\n");
+		
+		try {
+			return (Binder)compile(clazz, className, b.toString())
+				.getConstructor(ColumnWriter[].class).newInstance((Object)writers);
+		} catch(Exception e) {
+			return fallback.createBinder(classHelper, typeConverter, getters);
+		}
+	}
+	
+	private boolean canGenerate(Class<?> clazz) {
+		if (compiler == null) return false;
+		if (clazz.getCanonicalName() == null) return false;
+		for(Class<?> c = clazz; c != null; c = c.getEnclosingClass()) {
+			if (!Modifier.isPublic(c.getModifiers())) return false;
+			if ((c.getEnclosingClass() != null) && !Modifier.isStatic(c.getModifiers())) return false;
+		}
+		try {
+			clazz.getConstructor();
+		} catch(NoSuchMethodException e) {
+			return false;
+		}
+		// the generated class is loaded under the class's own loader, which has to see this library
+		try {
+			return Class.forName(RowMapper.class.getName(), false, clazz.getClassLoader()) == RowMapper.class;
+		} catch(ClassNotFoundException e) {
+			return false;
+		}
+	}
+	
+	private static String generatedClassName(Class<?> clazz, String kind) {
+		String name = clazz.getName();
+		return name.replace('$', '_') + "$$" + kind + "$" + sequence.incrementAndGet();
+	}
+	
+	private static void appendClassHeader(StringBuilder b, String className, String implementsType, String fieldType, String fieldName) {
+		int dot = className.lastIndexOf('.');
+		String simpleName = className.substring(dot + 1);
+		if (dot >= 0) {
+			b.append("package ").append(className.substring(0, dot)).append(";\n\n");
+		}
+		b.append("public final class ").append(simpleName).append(" implements ").append(implementsType).append(" {\n");
+		b.append("\tprivate final ").append(fieldType).append(" ").append(fieldName).append(";\n\n");
+		b.append("\tpublic ").append(simpleName).append("(").append(fieldType).append(" ").append(fieldName).append(") {\n");
+		b.append("\t\tthis.").append(fieldName).append(" = ").append(fieldName).append(";\n\t}\n\n");
+	}
+	
+	// the contents of a java string literal holding s
+	private static String javaString(String s) {
+		StringBuilder b = new StringBuilder();
+		for(char c : s.toCharArray()) {
+			if ((c == '"') || (c == '\\')) {
+				b.append('\\').append(c);
+			} else if (c < ' ') {
+				// octal, since a unicode escape would be translated before the literal is even read
+				b.append(String.format("\\%03o", (int)c));
+			} else {
+				b.append(c);
+			}
+		}
+		return b.toString();
+	}
+	
+	private static String boxedName(Class<?> type) {
+		return ClassHelper.wrap(type).getCanonicalName();
+	}
+	
+	private Class<?> compile(Class<?> clazz, String className, String source) throws Exception {
+		Map<String, ByteArrayOutputStream> classes = new HashMap<>();
+		JavaFileManager fileManager = new ForwardingJavaFileManager<JavaFileManager>(compiler.getStandardFileManager(null, null, null)) {
+			public JavaFileObject getJavaFileForOutput(Location location, String name, JavaFileObject.Kind kind, FileObject sibling) {
+				return new SimpleJavaFileObject(URI.create("mem:///" + name.replace('.', '/') + kind.extension), kind) {
+					public OutputStream openOutputStream() {
+						ByteArrayOutputStream out = new ByteArrayOutputStream();
+						classes.put(name, out);
+						return out;
+					}
+				};
+			}
+		};
+		JavaFileObject sourceFile = new SimpleJavaFileObject(
+			URI.create("string:///" + className.replace('.', '/') + JavaFileObject.Kind.SOURCE.extension), JavaFileObject.Kind.SOURCE) {
+			public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+				return source;
+			}
+		};
+		
+		try {
+			StringWriter errors = new StringWriter();
+			List<String> options = Arrays.asList("-classpath", getClasspath(clazz), "-proc:none", "-g:none");
+			if (!compiler.getTask(errors, fileManager, null, options, null, Collections.singletonList(sourceFile)).call()) {
+				throw new DBMapperException("Couldn't compile generated class ['" + className + "']: " + errors);
+			}
+		} finally {
+			fileManager.close();
+		}
+		
+		GeneratedClassLoader loader = new GeneratedClassLoader(clazz.getClassLoader());
+		return loader.define(className, classes.get(className).toByteArray());
+	}
+	
+	private static String getClasspath(Class<?> clazz) {
+		Set<String> entries = new LinkedHashSet<>();
+		for(Class<?> c : new Class<?>[] {clazz, CompilingMappingEngine.class}) {
+			CodeSource codeSource = c.getProtectionDomain().getCodeSource();
+			if ((codeSource != null) && (codeSource.getLocation() != null)) {
+				try {
+					entries.add(new File(codeSource.getLocation().toURI()).getPath());
+				} catch(Exception e) {}
+			}
+		}
+		entries.addAll(Arrays.asList(System.getProperty("java.class.path", "").split(File.pathSeparator)));
+		return StringUtils.join(entries, File.pathSeparator);
+	}
+	
+	private static class GeneratedClassLoader extends ClassLoader {
+		GeneratedClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+		
+		Class<?> define(String name, byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+}
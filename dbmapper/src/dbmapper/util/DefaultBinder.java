@@ -0,0 +1,68 @@
+package dbmapper.util;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.sql.PreparedStatement;
+import java.util.List;
+
+import dbmapper.ColumnWriter;
+import dbmapper.PrimitiveTypeConverter;
+import dbmapper.TypeConverter;
+
+public class DefaultBinder implements Binder {
+	private Getter[] getters;
+	private ColumnWriter<?>[] writers;
+	private int[] kinds;
+	
+	public DefaultBinder(TypeConverter typeConverter, List<Getter> getters) {
+		this.getters = getters.toArray(new Getter[getters.size()]);
+		this.writers = new ColumnWriter<?>[this.getters.length];
+		this.kinds = new int[this.getters.length];
+		for(int i = 0; i < this.getters.length; i++) {
+			writers[i] = typeConverter.getColumnWriter(this.getters[i].getType());
+			kinds[i] = PrimitiveKind.of(this.getters[i].getType(), writers[i]);
+		}
+	}
+	
+	public void bind(PreparedStatement ps, int offset, Object object) throws Exception {
+		for(int i = 0; i < getters.length; i++) {
+			bind(ps, offset + i + 1, object, getters[i], writers[i], kinds[i]);
+		}
+	}
+	
+	/** Bind a single property, without boxing when the getter and writer are both primitive. */
+	public static void bind(PreparedStatement ps, int index, Object object, Getter getter, TypeConverter typeConverter) throws Exception {
+		ColumnWriter<?> writer = typeConverter.getColumnWriter(getter.getType());
+		bind(ps, index, object, getter, writer, PrimitiveKind.of(getter.getType(), writer));
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static void bind(PreparedStatement ps, int index, Object object, Getter getter, ColumnWriter<?> writer, int kind) 
+	throws Exception {
+		switch(kind) {
+			case PrimitiveKind.INT:
+				((PrimitiveTypeConverter.OfInt)writer).setInt(ps, index, getter.getInt(object));
+				break;
+			case PrimitiveKind.LONG:
+				((PrimitiveTypeConverter.OfLong)writer).setLong(ps, index, getter.getLong(object));
+				break;
+			case PrimitiveKind.DOUBLE:
+				((PrimitiveTypeConverter.OfDouble)writer).setDouble(ps, index, getter.getDouble(object));
+				break;
+			default:
+				((ColumnWriter<Object>)writer).setValue(ps, index, getter.getValue(object));
+		}
+	}
+}
\ No newline at end of file
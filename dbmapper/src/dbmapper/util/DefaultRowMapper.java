@@ -0,0 +1,107 @@
+package dbmapper.util;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.List;
+
+import dbmapper.ColumnReader;
+import dbmapper.DBMapperException;
+import dbmapper.PrimitiveTypeConverter;
+import dbmapper.TypeConverter;
+
+// an immutable plan for mapping rows of one ResultSet column shape onto one class.
+// everything that only depends on the shape (column indexes, setter lookup, converters)
+// is resolved once here, so mapping a row only reads columns by index and calls setters.
+public class DefaultRowMapper<T> implements RowMapper<T> {
+	private ClassHelper classHelper;
+	private int[] columnIndexes;
+	private String[] columnNames;
+	private Setter[] setters;
+	private ColumnReader<?>[] readers;
+	private int[] kinds;
+	
+	public DefaultRowMapper(ClassHelper classHelper, TypeConverter typeConverter, String[] columnNames) {
+		this.classHelper = classHelper;
+		
+		List<Integer> mappedColumnIndexes = new ArrayList<>();
+		List<Setter> mappedSetters = new ArrayList<>();
+		for(int i = 0; i < columnNames.length; i++) {
+			Setter setter = classHelper.getSetterForColumn(columnNames[i]);
+			if (setter != null) {
+				mappedColumnIndexes.add(i + 1);
+				mappedSetters.add(setter);
+			}
+		}
+		
+		this.columnIndexes = new int[mappedColumnIndexes.size()];
+		this.columnNames = new String[columnIndexes.length];
+		this.setters = mappedSetters.toArray(new Setter[mappedSetters.size()]);
+		this.readers = new ColumnReader<?>[setters.length];
+		this.kinds = new int[setters.length];
+		for(int i = 0; i < setters.length; i++) {
+			columnIndexes[i] = mappedColumnIndexes.get(i);
+			this.columnNames[i] = columnNames[columnIndexes[i] - 1];
+			readers[i] = typeConverter.getColumnReader(setters[i].getType());
+			kinds[i] = PrimitiveKind.of(setters[i].getType(), readers[i]);
+		}
+	}
+	
+	@SuppressWarnings("unchecked")
+	public T map(ResultSet rs) throws Exception {
+		return map(rs, (T)classHelper.newInstance());
+	}
+	
+	public boolean canRefill() {
+		return true;
+	}
+	
+	public T map(ResultSet rs, T object) throws Exception {
+		for(int i = 0; i < setters.length; i++) {
+			int columnIndex = columnIndexes[i];
+			switch(kinds[i]) {
+				case PrimitiveKind.INT: {
+					int value = ((PrimitiveTypeConverter.OfInt)readers[i]).getInt(rs, columnIndex);
+					checkNotNull(rs, i);
+					setters[i].setInt(object, value);
+					break;
+				}
+				case PrimitiveKind.LONG: {
+					long value = ((PrimitiveTypeConverter.OfLong)readers[i]).getLong(rs, columnIndex);
+					checkNotNull(rs, i);
+					setters[i].setLong(object, value);
+					break;
+				}
+				case PrimitiveKind.DOUBLE: {
+					double value = ((PrimitiveTypeConverter.OfDouble)readers[i]).getDouble(rs, columnIndex);
+					checkNotNull(rs, i);
+					setters[i].setDouble(object, value);
+					break;
+				}
+				default:
+					setters[i].setValue(object, readers[i].getValue(rs, columnIndex));
+			}
+		}
+		return object;
+	}
+	
+	private void checkNotNull(ResultSet rs, int i) throws Exception {
+		if (rs.wasNull()) {
+			throw new DBMapperException(
+				"Column " + columnIndexes[i] + " ['" + columnNames[i] + "'] is null, but " + setters[i].getName() + " takes a primitive");
+		}
+	}
+}
\ No newline at end of file
@@ -17,35 +17,93 @@ package dbmapper.util;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 import dbmapper.TypeConverter;
 
 public class DefaultUpdateHelper implements UpdateHelper {
+	private static final int MAXIMUM_BINDERS = 8;
+	
 	private String sql;
+	private ClassHelper classHelper;
 	private List<Getter> setGetters = new ArrayList<>();
 	private List<Getter> keyGetters = new ArrayList<>();
+	private MappingEngine mappingEngine;
+	// least recently used converters go first, so mappers with different converters don't keep rebuilding binders
+	private Map<TypeConverter, Binder> binders = Collections.synchronizedMap(new LinkedHashMap<TypeConverter, Binder>(4, 0.75f, true) {
+		protected boolean removeEldestEntry(Map.Entry<TypeConverter, Binder> eldest) {
+			return size() > MAXIMUM_BINDERS;
+		}
+	});
 	
 	public DefaultUpdateHelper(String sql, List<Getter> setGetters, List<Getter> keyGetters) {
+		this(sql, null, setGetters, keyGetters, new DefaultMappingEngine());
+	}
+	
+	public DefaultUpdateHelper(String sql, ClassHelper classHelper, List<Getter> setGetters, List<Getter> keyGetters, 
+	MappingEngine mappingEngine) {
 		this.sql = sql;
+		this.classHelper = classHelper;
 		this.setGetters = setGetters;
 		this.keyGetters = keyGetters;
+		this.mappingEngine = mappingEngine;
 	}
 	
 	public int update(Connection connection, TypeConverter typeConverter, Object object) throws Exception {
+		return update(connection, null, typeConverter, object);
+	}
+	
+	public int update(Connection connection, StatementCache statementCache, TypeConverter typeConverter, Object object) throws Exception {
+		try (AutoCloseables closeables = new AutoCloseables()) {
+			PreparedStatement ps = StatementCache.prepare(connection, statementCache, closeables, sql, false);
+			getBinder(typeConverter).bind(ps, object);
+			return ps.executeUpdate();
+		}
+	}
+	
+	// the statement is prepared once and flushed every batchSize rows
+	public int[] updateAll(Connection connection, StatementCache statementCache, TypeConverter typeConverter, Collection<?> objects, 
+	int batchSize) throws Exception {
+		int[] counts = new int[objects.size()];
 		try (AutoCloseables closeables = new AutoCloseables()) {
-			PreparedStatement ps = closeables.add(connection.prepareStatement(sql));
-			
-			int setGettersSize = setGetters.size();
-			for(int i = 0; i < setGettersSize; i++) {
-				typeConverter.setValue(ps, i + 1, setGetters.get(i).getValue(object));
+			PreparedStatement ps = StatementCache.prepare(connection, statementCache, closeables, sql, false);
+			Binder binder = getBinder(typeConverter);
+			int pending = 0, position = 0;
+			for(Object object : objects) {
+				binder.bind(ps, object);
+				ps.addBatch();
+				if (++pending >= batchSize) {
+					position = executeBatch(ps, counts, position);
+					pending = 0;
+				}
 			}
-
-			for(int i = 0; i < keyGetters.size(); i++) {
-				typeConverter.setValue(ps, setGettersSize + i + 1, keyGetters.get(i).getValue(object));
+			if (pending > 0) {
+				executeBatch(ps, counts, position);
 			}
-			
-			return ps.executeUpdate();
 		}
+		return counts;
+	}
+	
+	private static int executeBatch(PreparedStatement ps, int[] counts, int position) throws Exception {
+		int[] batchCounts = ps.executeBatch();
+		System.arraycopy(batchCounts, 0, counts, position, batchCounts.length);
+		return position + batchCounts.length;
+	}
+	
+	// set parameters come first, followed by the key parameters of the WHERE clause
+	protected Binder getBinder(TypeConverter typeConverter) throws Exception {
+		Binder binder = binders.get(typeConverter);
+		if (binder == null) {
+			List<Getter> getters = new ArrayList<>(setGetters);
+			getters.addAll(keyGetters);
+			// built outside the lock, since generating a binder can take a while
+			binder = mappingEngine.createBinder(classHelper, typeConverter, getters);
+			binders.put(typeConverter, binder);
+		}
+		return binder;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,93 @@
+package dbmapper.util;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import dbmapper.ColumnWriter;
+import dbmapper.TypeConverter;
+
+// deletes by primary key.  a single key column lets many objects collapse into
+// DELETE ... WHERE k IN (?, ...) statements, while composite keys are sent as a batch of
+// single row deletes through an UpdateHelper that only has key getters.
+public class DeleteHelper {
+	private String tableName;
+	private List<String> keyColumns;
+	private List<Getter> keyGetters;
+	private UpdateHelper updateHelper;
+	
+	public DeleteHelper(String tableName, ClassHelper classHelper, List<String> keyColumns, List<Getter> keyGetters, 
+	MappingEngine mappingEngine) {
+		this.tableName = tableName;
+		this.keyColumns = keyColumns;
+		this.keyGetters = keyGetters;
+		String sql = "DELETE FROM " + tableName + " WHERE " + StringUtils.join(keyColumns, "=? AND ") + "=?";
+		this.updateHelper = new DefaultUpdateHelper(sql, classHelper, new ArrayList<>(), keyGetters, mappingEngine);
+	}
+	
+	public int delete(Connection connection, StatementCache statementCache, TypeConverter typeConverter, Object object) throws Exception {
+		return updateHelper.update(connection, statementCache, typeConverter, object);
+	}
+	
+	/** Delete every object, returning the number of rows the driver reports as deleted. */
+	public int deleteAll(Connection connection, StatementCache statementCache, TypeConverter typeConverter, Collection<?> objects, 
+	int batchSize, int maxParameters, int maxInListSize) throws Exception {
+		int count = 0;
+		if (keyGetters.size() > 1) {
+			for(int c : updateHelper.updateAll(connection, statementCache, typeConverter, objects, batchSize)) {
+				count += Math.max(c, 0);
+			}
+			return count;
+		}
+		
+		Getter getter = keyGetters.get(0);
+		Set<Object> keySet = new LinkedHashSet<>();
+		for(Object object : objects) {
+			keySet.add(getter.getValue(object));
+		}
+		List<Object> keys = new ArrayList<>(keySet);
+		
+		@SuppressWarnings("unchecked")
+		ColumnWriter<Object> writer = (ColumnWriter<Object>)typeConverter.getColumnWriter(getter.getType());
+		InList inList = new InList(Math.max(1, Math.min(batchSize, Math.min(maxParameters, maxInListSize))));
+		Map<Integer, PreparedStatement> statements = new HashMap<>();
+		try (AutoCloseables closeables = new AutoCloseables()) {
+			for(int start = 0; start < keys.size(); ) {
+				int size = inList.getChunkSize(keys.size() - start);
+				int end = Math.min(start + size, keys.size());
+				PreparedStatement ps = statements.get(size);
+				if (ps == null) {
+					ps = StatementCache.prepare(connection, statementCache, closeables, 
+						"DELETE FROM " + tableName + " WHERE " + keyColumns.get(0) + " IN (" + InList.placeholders(size) + ")", false);
+					statements.put(size, ps);
+				}
+				for(int i = 0; i < size; i++) {
+					writer.setValue(ps, i + 1, InList.get(keys, start, end, i));
+				}
+				count += ps.executeUpdate();
+				start = end;
+			}
+		}
+		return count;
+	}
+}
@@ -0,0 +1,27 @@
+package dbmapper.util;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.List;
+
+// implemented by the classes dbmapper.processor.MapperProcessor generates at build time and
+// registered through META-INF/services.  when present, ClassHelper uses these instead of
+// scanning the class with reflection.
+public interface EntityAccessors {
+	public Class<?> getEntityClass();
+	public Object newInstance();
+	public List<Setter> getSetters();
+	public List<Getter> getGetters();
+}
@@ -0,0 +1,134 @@
+package dbmapper.util;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import dbmapper.DBMapperException;
+import dbmapper.TypeConverter;
+
+// selects rows of a table by primary key, naming only the columns the class has setters for.
+// many keys are looked up with padded IN lists for a single key column, or OR'ed key
+// comparisons for composite keys, so only a few statements are ever prepared.
+public class FindHelper {
+	private String select;
+	private List<String> keyColumns;
+	private ClassHelper classHelper;
+	private MappingEngine mappingEngine;
+	private String sql;
+	private Map<Integer, String> inSql = Collections.synchronizedMap(new HashMap<>());
+	
+	public FindHelper(String tableName, ClassHelper classHelper, List<String> columns, List<String> keyColumns, MappingEngine mappingEngine) {
+		this.select = "SELECT " + StringUtils.join(columns, ", ") + " FROM " + tableName + " WHERE ";
+		this.keyColumns = keyColumns;
+		this.classHelper = classHelper;
+		this.mappingEngine = mappingEngine;
+		this.sql = select + StringUtils.join(keyColumns, "=? AND ") + "=?";
+	}
+	
+	public <T> T findById(Connection connection, StatementCache statementCache, TypeConverter typeConverter, Object[] key) throws Exception {
+		checkKey(key);
+		try (AutoCloseables closeables = new AutoCloseables()) {
+			PreparedStatement ps = StatementCache.prepare(connection, statementCache, closeables, sql, false);
+			for(int i = 0; i < key.length; i++) {
+				typeConverter.setValue(ps, i + 1, key[i]);
+			}
+			ResultSet rs = closeables.add(ps.executeQuery());
+			return rs.next()?this.<T>getRowMapper(rs, typeConverter).map(rs):null;
+		}
+	}
+	
+	/** Every row matching one of keys, in the order the database returns them.  Composite keys are given as Object[] or List. */
+	public <T> List<T> findByIds(Connection connection, StatementCache statementCache, TypeConverter typeConverter, Collection<?> keys, 
+	int maxParameters, int maxInListSize) throws Exception {
+		// repeated keys would return the same row again from another chunk
+		Set<List<Object>> unique = new LinkedHashSet<>();
+		for(Object key : keys) {
+			Object[] k = (key instanceof Object[])?(Object[])key:(key instanceof List)?((List<?>)key).toArray():new Object[] {key};
+			checkKey(k);
+			unique.add(Arrays.asList(k));
+		}
+		List<List<Object>> list = new ArrayList<>(unique);
+		
+		List<T> results = new ArrayList<>();
+		// a composite key is matched with ORs rather than an IN list, so only the parameter limit applies to it
+		int limit = maxParameters / keyColumns.size();
+		InList inList = new InList(Math.max(1, (keyColumns.size() == 1)?Math.min(limit, maxInListSize):limit));
+		Map<Integer, PreparedStatement> statements = new HashMap<>();
+		try (AutoCloseables closeables = new AutoCloseables()) {
+			RowMapper<T> rowMapper = null;
+			for(int start = 0; start < list.size(); ) {
+				int size = inList.getChunkSize(list.size() - start);
+				int end = Math.min(start + size, list.size());
+				PreparedStatement ps = statements.get(size);
+				if (ps == null) {
+					ps = StatementCache.prepare(connection, statementCache, closeables, getInSql(size), false);
+					statements.put(size, ps);
+				}
+				int index = 1;
+				for(int i = 0; i < size; i++) {
+					for(Object value : InList.get(list, start, end, i)) {
+						typeConverter.setValue(ps, index++, value);
+					}
+				}
+				try (ResultSet rs = ps.executeQuery()) {
+					while(rs.next()) {
+						if (rowMapper == null) {
+							rowMapper = getRowMapper(rs, typeConverter);
+						}
+						results.add(rowMapper.map(rs));
+					}
+				}
+				start = end;
+			}
+		}
+		return results;
+	}
+	
+	private String getInSql(int size) {
+		String s = inSql.get(size);
+		if (s == null) {
+			if (keyColumns.size() == 1) {
+				s = select + keyColumns.get(0) + " IN (" + InList.placeholders(size) + ")";
+			} else {
+				String match = "(" + StringUtils.join(keyColumns, "=? AND ") + "=?)";
+				s = select + StringUtils.repeat(match, size, " OR ");
+			}
+			inSql.put(size, s);
+		}
+		return s;
+	}
+	
+	private void checkKey(Object[] key) {
+		if (key.length != keyColumns.size()) {
+			throw new DBMapperException("Expected " + keyColumns.size() + " key values for " + keyColumns + ", but got " + Arrays.toString(key));
+		}
+	}
+	
+	private <T> RowMapper<T> getRowMapper(ResultSet rs, TypeConverter typeConverter) throws Exception {
+		return classHelper.getRowMapper(rs.getMetaData(), typeConverter, mappingEngine);
+	}
+}
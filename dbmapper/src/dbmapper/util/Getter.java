@@ -15,15 +15,92 @@ package dbmapper.util;
  */
 
 import java.lang.reflect.Method;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
 public class Getter {
+	private String name;
+	private Class<?> type;
 	private Method getter;
+	private Function<Object, Object> accessor;
+	private ToIntFunction<Object> intAccessor;
+	private ToLongFunction<Object> longAccessor;
+	private ToDoubleFunction<Object> doubleAccessor;
 	
 	public Getter(Method getter) {
+		this(getter, null);
+	}
+	
+	/** The accessor, when present, is used instead of reflectively invoking the method. */
+	public Getter(Method getter, Function<Object, Object> accessor) {
+		this.name = getter.getName();
+		this.type = getter.getReturnType();
 		this.getter = getter;
+		this.accessor = accessor;
+	}
+	
+	/** For generated accessors, which don't need a Method at all. */
+	public Getter(String name, Class<?> type, Function<Object, Object> accessor) {
+		this.name = name;
+		this.type = type;
+		this.accessor = accessor;
 	}
 	
 	public Object getValue(Object target) throws Exception {
+		if (accessor != null) {
+			return accessor.apply(target);
+		}
 		return getter.invoke(target);
 	}
+	
+	// the primitive reads avoid boxing when a matching primitive accessor has been provided
+	public int getInt(Object target) throws Exception {
+		if (intAccessor != null) {
+			return intAccessor.applyAsInt(target);
+		}
+		return ((Number)getValue(target)).intValue();
+	}
+	
+	public long getLong(Object target) throws Exception {
+		if (longAccessor != null) {
+			return longAccessor.applyAsLong(target);
+		}
+		return ((Number)getValue(target)).longValue();
+	}
+	
+	public double getDouble(Object target) throws Exception {
+		if (doubleAccessor != null) {
+			return doubleAccessor.applyAsDouble(target);
+		}
+		return ((Number)getValue(target)).doubleValue();
+	}
+	
+	public void setIntAccessor(ToIntFunction<Object> intAccessor) {
+		this.intAccessor = intAccessor;
+	}
+	
+	public void setLongAccessor(ToLongFunction<Object> longAccessor) {
+		this.longAccessor = longAccessor;
+	}
+	
+	public void setDoubleAccessor(ToDoubleFunction<Object> doubleAccessor) {
+		this.doubleAccessor = doubleAccessor;
+	}
+	
+	/** Returns the method name */
+	public String getName() {
+		return name;
+	}
+	
+	/** Returns the return type of the method */
+	public Class<?> getType() {
+		return type;
+	}
+	
+	/** Returns the underlying method, or null for generated accessors */
+	public Method getMethod() {
+		return getter;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,62 @@
+package dbmapper.util;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+// chunks key values into IN (?, ?, ...) lists of a few fixed sizes.  a short chunk is padded
+// by repeating its last value up to the next size, which doesn't change what an IN matches,
+// so only a handful of distinct statements are ever prepared.
+public class InList {
+	private static final int[] SIZES = {1, 4, 16, 64, 256, 1024};
+	
+	private int[] sizes;
+	
+	/** Chunks of at most limit values, and of at least one whatever limit is. */
+	public InList(int limit) {
+		limit = Math.max(1, limit);
+		List<Integer> list = new ArrayList<>();
+		for(int size : SIZES) {
+			if (size < limit) {
+				list.add(size);
+			}
+		}
+		list.add(Math.min(limit, SIZES[SIZES.length - 1]));
+		sizes = new int[list.size()];
+		for(int i = 0; i < sizes.length; i++) {
+			sizes[i] = list.get(i);
+		}
+	}
+	
+	/** The padded size of the next chunk when remaining values are left. */
+	public int getChunkSize(int remaining) {
+		for(int size : sizes) {
+			if (size >= remaining) {
+				return size;
+			}
+		}
+		return sizes[sizes.length - 1];
+	}
+	
+	/** The value to bind at position i of a chunk holding values[start, end). */
+	public static <T> T get(List<T> values, int start, int end, int i) {
+		return values.get(Math.min(start + i, end - 1));
+	}
+	
+	public static String placeholders(int size) {
+		return StringUtils.repeat("?", size, ", ");
+	}
+}
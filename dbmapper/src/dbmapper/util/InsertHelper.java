@@ -0,0 +1,189 @@
+package dbmapper.util;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import dbmapper.DBMapperException;
+import dbmapper.TypeConverter;
+
+// holds the insertable columns of a table for one class, in ordinal order.  an insert only
+// names the columns whose values aren't null, so each object maps to a bitmask of those columns
+// and every distinct mask gets one InsertPlan with its SQL and binder built once.  columns
+// always appear in the same order, so equivalent inserts produce identical SQL.
+public class InsertHelper {
+	private static final int MAXIMUM_BINDERS = 8;
+	
+	private String tableName;
+	private ClassHelper classHelper;
+	private List<Column> columns;
+	private List<Getter> getters;
+	private Setter generatedKeySetter;
+	private MappingEngine mappingEngine;
+	private Map<Object, InsertPlan> plans = Collections.synchronizedMap(new HashMap<>());
+
+	public InsertHelper(String tableName, ClassHelper classHelper, List<Column> columns, List<Getter> getters,
+	Setter generatedKeySetter, MappingEngine mappingEngine) {
+		this.tableName = tableName;
+		this.classHelper = classHelper;
+		this.columns = columns;
+		this.getters = getters;
+		this.generatedKeySetter = generatedKeySetter;
+		this.mappingEngine = mappingEngine;
+	}
+
+	/** The plan covering the non-null columns of object. */
+	public InsertPlan getPlan(Object object) throws Exception {
+		Object mask = getMask(object);
+		InsertPlan plan = plans.get(mask);
+		if (plan == null) {
+			plan = createPlan(mask);
+			plans.put(mask, plan);
+		}
+		return plan;
+	}
+
+	/** The setter for the table's auto-increment column, or null if there isn't one. */
+	public Setter getGeneratedKeySetter() {
+		return generatedKeySetter;
+	}
+
+	public List<Column> getColumns() {
+		return columns;
+	}
+
+	// primitive properties are never null, so they're always included without being read.
+	// the mask is a Long up to 64 columns and a BitSet past that.
+	private Object getMask(Object object) throws Exception {
+		if (getters.size() <= 64) {
+			long mask = 0;
+			for(int i = 0; i < getters.size(); i++) {
+				Getter getter = getters.get(i);
+				if (getter.getType().isPrimitive() || (getter.getValue(object) != null)) {
+					mask |= 1L << i;
+				}
+			}
+			return mask;
+		}
+		BitSet mask = new BitSet(getters.size());
+		for(int i = 0; i < getters.size(); i++) {
+			Getter getter = getters.get(i);
+			if (getter.getType().isPrimitive() || (getter.getValue(object) != null)) {
+				mask.set(i);
+			}
+		}
+		return mask;
+	}
+
+	private boolean isSet(Object mask, int i) {
+		return (mask instanceof Long)?((((Long)mask) & (1L << i)) != 0):((BitSet)mask).get(i);
+	}
+
+	private InsertPlan createPlan(Object mask) {
+		List<String> planColumns = new ArrayList<>();
+		List<Getter> planGetters = new ArrayList<>();
+		for(int i = 0; i < columns.size(); i++) {
+			if (isSet(mask, i)) {
+				planColumns.add(columns.get(i).getName());
+				planGetters.add(getters.get(i));
+			}
+		}
+		if (planColumns.isEmpty()) {
+			throw new DBMapperException("All values were null, so no insert could be performed");
+		}
+
+		String prefix = "INSERT INTO " + tableName + " (" + StringUtils.join(planColumns, ", ") + ") VALUES ";
+		return new InsertPlan(prefix, classHelper, planColumns, planGetters, mappingEngine);
+	}
+
+	public static class InsertPlan {
+		private String prefix;
+		private String row;
+		private String sql;
+		private ClassHelper classHelper;
+		private List<String> columns;
+		private List<Getter> getters;
+		private MappingEngine mappingEngine;
+		// a binder per converter, least recently used going first, so mappers with different
+		// converters sharing this plan don't keep rebuilding each other's binders
+		private Map<TypeConverter, Binder> binders = Collections.synchronizedMap(new LinkedHashMap<TypeConverter, Binder>(4, 0.75f, true) {
+			protected boolean removeEldestEntry(Map.Entry<TypeConverter, Binder> eldest) {
+				return size() > MAXIMUM_BINDERS;
+			}
+		});
+		private volatile MultiRowSql multiRowSql;
+
+		InsertPlan(String prefix, ClassHelper classHelper, List<String> columns, List<Getter> getters, MappingEngine mappingEngine) {
+			this.prefix = prefix;
+			this.row = "(" + StringUtils.repeat("?", columns.size(), ", ") + ")";
+			this.sql = prefix + row;
+			this.classHelper = classHelper;
+			this.columns = Collections.unmodifiableList(columns);
+			this.getters = Collections.unmodifiableList(getters);
+			this.mappingEngine = mappingEngine;
+		}
+
+		public String getSql() {
+			return sql;
+		}
+
+		/** INSERT ... VALUES (...), (...) for the given number of rows, binding columns row by row. */
+		public String getMultiRowSql(int rows) {
+			// only the largest is kept, since that's the full chunk size and the rest are one-off remainders
+			MultiRowSql m = multiRowSql;
+			if ((m != null) && (m.rows == rows)) {
+				return m.sql;
+			}
+			String sql = prefix + StringUtils.repeat(row, rows, ", ");
+			if ((m == null) || (rows > m.rows)) {
+				multiRowSql = new MultiRowSql(rows, sql);
+			}
+			return sql;
+		}
+
+		public List<String> getColumns() {
+			return columns;
+		}
+
+		public List<Getter> getGetters() {
+			return getters;
+		}
+
+		public Binder getBinder(TypeConverter typeConverter) throws Exception {
+			Binder binder = binders.get(typeConverter);
+			if (binder == null) {
+				// built outside the lock, since generating a binder can take a while
+				binder = mappingEngine.createBinder(classHelper, typeConverter, getters);
+				binders.put(typeConverter, binder);
+			}
+			return binder;
+		}
+	}
+
+	private static class MultiRowSql {
+		int rows;
+		String sql;
+		MultiRowSql(int rows, String sql) {
+			this.rows = rows;
+			this.sql = sql;
+		}
+	}
+}
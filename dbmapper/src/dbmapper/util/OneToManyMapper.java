@@ -0,0 +1,213 @@
+package dbmapper.util;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import dbmapper.DBMapperException;
+import dbmapper.OneToMany;
+import dbmapper.TypeConverter;
+
+// folds the rows of a parent/child join into parents holding their children in one pass.
+// the parent is only mapped from the first row with a new key, and every row whose child key
+// columns aren't all null adds a child.  without child key columns in the result, a row adds
+// a child when any prefixed column isn't null.  ordered results just compare each key with the one
+// before; otherwise parents are looked up by key and passed on once the rows run out, in the
+// order they were first seen.  both sides use the row mappers ClassHelper caches per shape.
+public class OneToManyMapper<P, C> {
+	private RowMapper<P> parentMapper;
+	private RowMapper<C> childMapper;
+	private int[] keyIndexes;
+	private int[] childIndexes;
+	private Getter collectionGetter;
+	private Setter collectionSetter;
+	private boolean ordered;
+
+	public OneToManyMapper(OneToMany<P, C> relation, List<String> childKeyColumns, ClassHelper parentHelper, ClassHelper childHelper, 
+	ResultSetMetaData rsmd, TypeConverter typeConverter, MappingEngine mappingEngine) throws Exception {
+		String prefix = relation.getChildColumnPrefix();
+		String[] parentColumns = new String[rsmd.getColumnCount()];
+		String[] childColumns = new String[parentColumns.length];
+		for(int i = 0; i < parentColumns.length; i++) {
+			String label = rsmd.getColumnLabel(i + 1);
+			if (prefix == null) {
+				parentColumns[i] = label;
+				childColumns[i] = label;
+			} else if (label.regionMatches(true, 0, prefix, 0, prefix.length())) {
+				childColumns[i] = label.substring(prefix.length());
+			} else {
+				parentColumns[i] = label;
+			}
+		}
+		if (prefix == null) {
+			// a label both sides share, as with SELECT o.*, l.*, is the parent's the first time and the child's the last
+			for(int i = 0; i < parentColumns.length; i++) {
+				for(int j = i + 1; j < parentColumns.length; j++) {
+					if ((parentColumns[i] != null) && parentColumns[i].equalsIgnoreCase(parentColumns[j])) {
+						childColumns[i] = null;
+						parentColumns[j] = null;
+					}
+				}
+			}
+		}
+		this.parentMapper = parentHelper.getRowMapper(parentColumns, typeConverter, mappingEngine);
+		this.childMapper = childHelper.getRowMapper(childColumns, typeConverter, mappingEngine);
+
+		// without a prefix every column is also a parent column, which isn't null just because there's no child
+		List<Integer> indexes = new ArrayList<>();
+		for(String keyColumn : childKeyColumns) {
+			// the last match, since the child's columns usually come after the parent's
+			for(int i = childColumns.length; i >= 1; i--) {
+				if (keyColumn.equalsIgnoreCase(childColumns[i - 1])) {
+					indexes.add(i);
+					break;
+				}
+			}
+		}
+		if (indexes.isEmpty()) {
+			if (prefix == null) {
+				throw new DBMapperException("Without a child column prefix, the child key columns " + childKeyColumns 
+					+ " must be in the result");
+			}
+			for(int i = 0; i < childColumns.length; i++) {
+				if (childHelper.getSetterForColumn(childColumns[i]) != null) {
+					indexes.add(i + 1);
+				}
+			}
+		}
+		this.childIndexes = indexes.stream().mapToInt(Integer::intValue).toArray();
+
+		List<String> keyColumns = relation.getParentKeyColumns();
+		this.keyIndexes = new int[keyColumns.size()];
+		for(int i = 0; i < keyIndexes.length; i++) {
+			// a key column may be one the parent doesn't map, but not one of the child's
+			for(int j = parentColumns.length; j >= 1; j--) {
+				if (keyColumns.get(i).equalsIgnoreCase(parentColumns[j - 1])) {
+					keyIndexes[i] = j;
+				}
+			}
+			if (keyIndexes[i] == 0) {
+				throw new DBMapperException("Parent key column " + keyColumns.get(i) + " is not in the result");
+			}
+		}
+
+		this.collectionGetter = parentHelper.getGetterForProperty(relation.getCollectionProperty());
+		this.collectionSetter = parentHelper.getSetterForProperty(relation.getCollectionProperty());
+		if ((collectionGetter == null) && (collectionSetter == null)) {
+			throw new DBMapperException(parentHelper.getClazz().getName() + " has no property " + relation.getCollectionProperty());
+		}
+		this.ordered = relation.isOrdered();
+	}
+
+	/** Map every remaining row of rs, passing each parent to consumer once it has all of its children. */
+	public void forEach(ResultSet rs, Consumer<? super P> consumer) throws Exception {
+		Map<Object, Group<P>> groups = ordered?null:new LinkedHashMap<>();
+		Object currentKey = null;
+		Group<P> current = null;
+		while(rs.next()) {
+			Object key = getKey(rs);
+			if (key == null) {
+				continue;
+			}
+			if (ordered) {
+				if ((current == null) || !key.equals(currentKey)) {
+					if (current != null) {
+						consumer.accept(current.parent);
+					}
+					current = createGroup(rs);
+					currentKey = key;
+				}
+			} else {
+				current = groups.get(key);
+				if (current == null) {
+					current = createGroup(rs);
+					groups.put(key, current);
+				}
+			}
+			if (hasChild(rs)) {
+				current.children.add(childMapper.map(rs));
+			}
+		}
+
+		if (ordered) {
+			if (current != null) {
+				consumer.accept(current.parent);
+			}
+		} else {
+			for(Group<P> group : groups.values()) {
+				consumer.accept(group.parent);
+			}
+		}
+	}
+
+	// a single column key is its value, a composite key the list of values.  null if any part is null.
+	private Object getKey(ResultSet rs) throws Exception {
+		if (keyIndexes.length == 1) {
+			return rs.getObject(keyIndexes[0]);
+		}
+		Object[] key = new Object[keyIndexes.length];
+		for(int i = 0; i < key.length; i++) {
+			key[i] = rs.getObject(keyIndexes[i]);
+			if (key[i] == null) {
+				return null;
+			}
+		}
+		return Arrays.asList(key);
+	}
+
+	// an outer join gives a row of nulls for a parent without children
+	private boolean hasChild(ResultSet rs) throws Exception {
+		for(int index : childIndexes) {
+			if (rs.getObject(index) != null) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	// the parent's own collection is used if it starts with one, otherwise a list or set to suit the setter
+	@SuppressWarnings("unchecked")
+	private Group<P> createGroup(ResultSet rs) throws Exception {
+		P parent = parentMapper.map(rs);
+		Collection<Object> children = (collectionGetter == null)?null:(Collection<Object>)collectionGetter.getValue(parent);
+		if (children == null) {
+			if (collectionSetter == null) {
+				throw new DBMapperException(collectionGetter.getName() + " returned null and has no setter");
+			}
+			children = Set.class.isAssignableFrom(collectionSetter.getType())?new LinkedHashSet<>():new ArrayList<>();
+			collectionSetter.setValue(parent, children);
+		}
+		return new Group<>(parent, children);
+	}
+
+	private static class Group<P> {
+		P parent;
+		Collection<Object> children;
+		Group(P parent, Collection<Object> children) {
+			this.parent = parent;
+			this.children = children;
+		}
+	}
+}
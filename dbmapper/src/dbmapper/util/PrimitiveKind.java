@@ -0,0 +1,33 @@
+package dbmapper.util;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import dbmapper.PrimitiveTypeConverter;
+
+// classifies a property for the boxing-free paths: a primitive property can only skip boxing
+// when the converter resolved for it is specialized for that primitive
+final class PrimitiveKind {
+	static final int NONE = 0, INT = 1, LONG = 2, DOUBLE = 3;
+	
+	private PrimitiveKind() {
+	}
+	
+	static int of(Class<?> type, Object converter) {
+		if ((type == int.class) && (converter instanceof PrimitiveTypeConverter.OfInt)) return INT;
+		if ((type == long.class) && (converter instanceof PrimitiveTypeConverter.OfLong)) return LONG;
+		if ((type == double.class) && (converter instanceof PrimitiveTypeConverter.OfDouble)) return DOUBLE;
+		return NONE;
+	}
+}
@@ -0,0 +1,106 @@
+package dbmapper.util;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.OffsetDateTime;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+// puts the properties a column shape doesn't map back to the values a new instance has, so an
+// instance that's refilled row after row never shows a value left over from an earlier row.
+// int, long and double properties are copied without boxing.  immutable initial values are
+// copied from one template instance, but a property starting out with anything else, like
+// an empty list, gets its value from a fresh instance each time, so rows never share it.
+public class PropertyResetter {
+	private static final Set<Class<?>> IMMUTABLE_TYPES = new HashSet<>(Arrays.asList(String.class, Boolean.class, Character.class,
+		Byte.class, Short.class, Integer.class, Long.class, Float.class, Double.class, BigDecimal.class, BigInteger.class,
+		LocalDate.class, LocalTime.class, LocalDateTime.class, OffsetDateTime.class, ZonedDateTime.class, Instant.class, 
+		Duration.class, UUID.class, Class.class));
+	
+	private ClassHelper classHelper;
+	private Object template;
+	private Setter[] setters;
+	private Getter[] getters;
+	private Setter[] freshSetters;
+	private Getter[] freshGetters;
+	
+	public PropertyResetter(ClassHelper classHelper, String[] columnNames) throws Exception {
+		this.classHelper = classHelper;
+		Set<Setter> mapped = new HashSet<>();
+		for(String columnName : columnNames) {
+			Setter setter = classHelper.getSetterForColumn(columnName);
+			if (setter != null) {
+				mapped.add(setter);
+			}
+		}
+		
+		this.template = classHelper.newInstance();
+		List<Setter> unmappedSetters = new ArrayList<>(), freshSetters = new ArrayList<>();
+		List<Getter> unmappedGetters = new ArrayList<>(), freshGetters = new ArrayList<>();
+		for(Setter setter : classHelper.getSetters()) {
+			Getter getter = classHelper.getGetterForSetter(setter);
+			if (!mapped.contains(setter) && (getter != null) && (getter.getType() == setter.getType())) {
+				if (isImmutable(getter.getValue(template))) {
+					unmappedSetters.add(setter);
+					unmappedGetters.add(getter);
+				} else {
+					freshSetters.add(setter);
+					freshGetters.add(getter);
+				}
+			}
+		}
+		this.setters = unmappedSetters.toArray(new Setter[unmappedSetters.size()]);
+		this.getters = unmappedGetters.toArray(new Getter[unmappedGetters.size()]);
+		this.freshSetters = freshSetters.toArray(new Setter[freshSetters.size()]);
+		this.freshGetters = freshGetters.toArray(new Getter[freshGetters.size()]);
+	}
+	
+	private static boolean isImmutable(Object value) {
+		return (value == null) || (value instanceof Enum) || IMMUTABLE_TYPES.contains(value.getClass());
+	}
+	
+	public void reset(Object object) throws Exception {
+		for(int i = 0; i < setters.length; i++) {
+			Class<?> type = setters[i].getType();
+			if (type == int.class) {
+				setters[i].setInt(object, getters[i].getInt(template));
+			} else if (type == long.class) {
+				setters[i].setLong(object, getters[i].getLong(template));
+			} else if (type == double.class) {
+				setters[i].setDouble(object, getters[i].getDouble(template));
+			} else {
+				setters[i].setValue(object, getters[i].getValue(template));
+			}
+		}
+		if (freshSetters.length > 0) {
+			Object fresh = classHelper.newInstance();
+			for(int i = 0; i < freshSetters.length; i++) {
+				freshSetters[i].setValue(object, freshGetters[i].getValue(fresh));
+			}
+		}
+	}
+}
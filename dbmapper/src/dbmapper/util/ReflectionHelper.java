@@ -28,7 +28,7 @@ public class ReflectionHelper {
 	
 	public Class<?> getSetterTypeIfExists(Class<?> clazz, String methodName) throws Exception {
 		Setter setter = getClassHelper(clazz).getSetter(methodName);
-		return (setter == null)?null:setter.getMethod().getParameterTypes()[0];
+		return (setter == null)?null:setter.getType();
 	}
 	
 	public void invokeSetterIfExists(Object object, String methodName, Object value) throws Exception {
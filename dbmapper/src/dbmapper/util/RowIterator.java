@@ -0,0 +1,86 @@
+package dbmapper.util;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.sql.ResultSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import dbmapper.DBMapperException;
+
+// maps one row per call to next, so only the current row is ever held.  the resources it was
+// given are closed once the rows run out, or when it's closed early.
+public class RowIterator<T> implements Iterator<T>, AutoCloseable {
+	private ResultSet rs;
+	private RowMapper<T> rowMapper;
+	private AutoCloseables closeables;
+	private boolean fetched, hasNext = true;
+	
+	public RowIterator(ResultSet rs, RowMapper<T> rowMapper, AutoCloseables closeables) {
+		this.rs = rs;
+		this.rowMapper = rowMapper;
+		this.closeables = closeables;
+	}
+	
+	public boolean hasNext() {
+		if (!fetched && hasNext) {
+			try {
+				hasNext = rs.next();
+				fetched = true;
+			} catch(Exception e) {
+				close();
+				throw new DBMapperException(e);
+			}
+			if (!hasNext) {
+				close();
+			}
+		}
+		return hasNext;
+	}
+	
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		fetched = false;
+		try {
+			return rowMapper.map(rs);
+		} catch(DBMapperException e) {
+			close();
+			throw e;
+		} catch(Exception e) {
+			close();
+			throw new DBMapperException(e);
+		}
+	}
+	
+	public Spliterator<T> spliterator() {
+		return Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+	}
+	
+	/** A sequential stream of the rows, which closes this when it's closed. */
+	public Stream<T> stream() {
+		return StreamSupport.stream(spliterator(), false).onClose(this::close);
+	}
+	
+	public void close() {
+		hasNext = false;
+		closeables.close();
+	}
+}
@@ -0,0 +1,33 @@
+package dbmapper.util;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.sql.ResultSet;
+
+public interface RowMapper<T> {
+	/** Build a new instance from the current row. This method does not call rs.next(). */
+	public T map(ResultSet rs) throws Exception;
+	
+	/** Set the mapped properties of an existing instance from the current row, and return it.  Only called when 
+	 * canRefill returns true, so a mapper that can't refill needn't implement either, and is given map(rs) calls instead. */
+	public default T map(ResultSet rs, T object) throws Exception {
+		throw new UnsupportedOperationException(getClass().getName() + " can't map into an existing instance");
+	}
+	
+	/** Whether map(rs, object) is implemented. */
+	public default boolean canRefill() {
+		return false;
+	}
+}
@@ -0,0 +1,102 @@
+package dbmapper.util;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+
+import dbmapper.DBMapperException;
+import dbmapper.Dialect;
+import dbmapper.TypeConverter;
+
+// selects a whole table a page at a time in primary key order, each page starting after the
+// last key of the one before (keyset pagination), so every page costs an index seek however
+// far into the table it is.  composite keys are compared as row values where the dialect
+// allows it, and spelled out as (a > ?) OR (a = ? AND b > ?) where it doesn't.
+public class ScanHelper {
+	private String select;
+	private List<String> keyColumns;
+	private ClassHelper classHelper;
+	private MappingEngine mappingEngine;
+
+	public ScanHelper(String tableName, ClassHelper classHelper, List<String> columns, List<String> keyColumns, MappingEngine mappingEngine) {
+		this.select = "SELECT " + StringUtils.join(columns, ", ") + " FROM " + tableName;
+		this.keyColumns = keyColumns;
+		this.classHelper = classHelper;
+		this.mappingEngine = mappingEngine;
+	}
+
+	/** Scan the rows after key, given in key column order, or from the start if key is null.  A single column key can 
+	 * also be bounded by upTo, inclusive, with null for no bound. */
+	public <T> TableScan<T> scan(Connection connection, StatementCache statementCache, TypeConverter typeConverter, Dialect dialect, 
+	int pageSize, Object[] key, Object upTo) {
+		if (pageSize < 1) {
+			throw new DBMapperException("The page size must be at least 1, not " + pageSize);
+		}
+		if ((upTo != null) && (keyColumns.size() != 1)) {
+			throw new DBMapperException("Only a single column key can be given an upper bound");
+		}
+		if ((key != null) && (key.length != keyColumns.size())) {
+			throw new DBMapperException("Expected " + keyColumns.size() + " key values for " + keyColumns + ", but got " + key.length);
+		}
+		String orderBy = " ORDER BY " + StringUtils.join(keyColumns, ", ");
+		String bound = (upTo == null)?"":(keyColumns.get(0) + " <= ?");
+		String firstSql = dialect.limit(select + (bound.isEmpty()?"":(" WHERE " + bound)) + orderBy, pageSize);
+		String nextSql = dialect.limit(select + " WHERE " + getAfterKey(dialect) + (bound.isEmpty()?"":(" AND " + bound)) + orderBy, pageSize);
+		return new TableScan<>(connection, statementCache, typeConverter, classHelper, mappingEngine, firstSql, nextSql, getKeyBinds(dialect), 
+			keyColumns, pageSize, key, upTo);
+	}
+
+	public List<String> getKeyColumns() {
+		return keyColumns;
+	}
+
+	private String getAfterKey(Dialect dialect) {
+		if (keyColumns.size() == 1) {
+			return keyColumns.get(0) + " > ?";
+		} else if (dialect.supportsRowValueComparison()) {
+			return "(" + StringUtils.join(keyColumns, ", ") + ") > (" + StringUtils.repeat("?", keyColumns.size(), ", ") + ")";
+		}
+		List<String> alternatives = new ArrayList<>();
+		for(int i = 0; i < keyColumns.size(); i++) {
+			StringBuilder b = new StringBuilder("(");
+			for(int j = 0; j < i; j++) {
+				b.append(keyColumns.get(j)).append(" = ? AND ");
+			}
+			alternatives.add(b.append(keyColumns.get(i)).append(" > ?)").toString());
+		}
+		return "(" + StringUtils.join(alternatives, " OR ") + ")";
+	}
+
+	// which key value goes to each parameter of getAfterKey
+	private int[] getKeyBinds(Dialect dialect) {
+		if ((keyColumns.size() == 1) || dialect.supportsRowValueComparison()) {
+			int[] binds = new int[keyColumns.size()];
+			for(int i = 0; i < binds.length; i++) {
+				binds[i] = i;
+			}
+			return binds;
+		}
+		int[] binds = new int[keyColumns.size() * (keyColumns.size() + 1) / 2];
+		int index = 0;
+		for(int i = 0; i < keyColumns.size(); i++) {
+			for(int j = 0; j <= i; j++) {
+				binds[index++] = j;
+			}
+		}
+		return binds;
+	}
+}
@@ -15,18 +15,95 @@ package dbmapper.util;
  */
 
 import java.lang.reflect.Method;
+import java.util.function.BiConsumer;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
 
 public class Setter {
+	private String name;
+	private Class<?> type;
 	private Method setter;
+	private BiConsumer<Object, Object> accessor;
+	private ObjIntConsumer<Object> intAccessor;
+	private ObjLongConsumer<Object> longAccessor;
+	private ObjDoubleConsumer<Object> doubleAccessor;
 	
 	public Setter(Method setter) {
+		this(setter, null);
+	}
+	
+	/** The accessor, when present, is used instead of reflectively invoking the method. */
+	public Setter(Method setter, BiConsumer<Object, Object> accessor) {
+		this.name = setter.getName();
+		this.type = setter.getParameterTypes()[0];
 		this.setter = setter;
+		this.accessor = accessor;
+	}
+	
+	/** For generated accessors, which don't need a Method at all. */
+	public Setter(String name, Class<?> type, BiConsumer<Object, Object> accessor) {
+		this.name = name;
+		this.type = type;
+		this.accessor = accessor;
 	}
 	
 	public void setValue(Object target, Object value) throws Exception {
-		setter.invoke(target, value);
+		if (accessor != null) {
+			accessor.accept(target, value);
+		} else {
+			setter.invoke(target, value);
+		}
+	}
+	
+	// the primitive writes avoid boxing when a matching primitive accessor has been provided
+	public void setInt(Object target, int value) throws Exception {
+		if (intAccessor != null) {
+			intAccessor.accept(target, value);
+		} else {
+			setValue(target, value);
+		}
+	}
+	
+	public void setLong(Object target, long value) throws Exception {
+		if (longAccessor != null) {
+			longAccessor.accept(target, value);
+		} else {
+			setValue(target, value);
+		}
+	}
+	
+	public void setDouble(Object target, double value) throws Exception {
+		if (doubleAccessor != null) {
+			doubleAccessor.accept(target, value);
+		} else {
+			setValue(target, value);
+		}
+	}
+	
+	public void setIntAccessor(ObjIntConsumer<Object> intAccessor) {
+		this.intAccessor = intAccessor;
+	}
+	
+	public void setLongAccessor(ObjLongConsumer<Object> longAccessor) {
+		this.longAccessor = longAccessor;
+	}
+	
+	public void setDoubleAccessor(ObjDoubleConsumer<Object> doubleAccessor) {
+		this.doubleAccessor = doubleAccessor;
+	}
+	
+	/** Returns the method name */
+	public String getName() {
+		return name;
+	}
+	
+	/** Returns the parameter type of the method */
+	public Class<?> getType() {
+		return type;
 	}
 	
+	/** Returns the underlying method, or null for generated accessors */
 	public Method getMethod() {
 		return setter;
 	}
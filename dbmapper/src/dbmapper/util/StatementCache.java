@@ -0,0 +1,137 @@
+package dbmapper.util;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+// keeps the idle prepared statements of one connection in LRU order, keyed by their SQL and
+// whether they return generated keys.  a statement is taken out of the cache while it's in
+// use, so asking for the same SQL twice at once just prepares a second statement, and only
+// one of them is kept when both come back.
+// each mapper owns its cache and passes it to the helpers, which prepare through the static
+// prepare method.  the statements stay open on the connection until the mapper is closed.
+public class StatementCache implements AutoCloseable {
+	private Connection connection;
+	private int maximumSize;
+	private LinkedHashMap<Key, PreparedStatement> idle = new LinkedHashMap<>(16, 0.75f, true);
+	private boolean closed;
+	private long hits, misses, evictions;
+
+	public StatementCache(Connection connection, int maximumSize) {
+		this.connection = connection;
+		this.maximumSize = maximumSize;
+	}
+
+	/** Prepare sql through cache, or straight from connection if cache is null.  Closing closeables hands the statement back. */
+	public static PreparedStatement prepare(Connection connection, StatementCache cache, AutoCloseables closeables, String sql, 
+	boolean generatedKeys) throws SQLException {
+		if (cache == null) {
+			return closeables.add(generatedKeys?connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS):connection.prepareStatement(sql));
+		}
+		PreparedStatement ps = cache.take(sql, generatedKeys);
+		closeables.add(() -> cache.release(sql, generatedKeys, ps));
+		return ps;
+	}
+
+	public synchronized PreparedStatement take(String sql, boolean generatedKeys) throws SQLException {
+		PreparedStatement ps = idle.remove(new Key(sql, generatedKeys));
+		if (ps != null) {
+			hits++;
+			return ps;
+		}
+		misses++;
+		return generatedKeys?connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS):connection.prepareStatement(sql);
+	}
+
+	// anything left bound or batched is cleared before the statement is reused
+	public synchronized void release(String sql, boolean generatedKeys, PreparedStatement ps) {
+		Key key = new Key(sql, generatedKeys);
+		if (closed || (maximumSize <= 0) || idle.containsKey(key)) {
+			closeQuietly(ps);
+			return;
+		}
+		try {
+			ps.clearParameters();
+			ps.clearBatch();
+		} catch(Exception e) {
+			closeQuietly(ps);
+			return;
+		}
+		idle.put(key, ps);
+		while(idle.size() > maximumSize) {
+			Iterator<PreparedStatement> i = idle.values().iterator();
+			closeQuietly(i.next());
+			i.remove();
+			evictions++;
+		}
+	}
+
+	/** Close every idle statement, and any in use as they come back. */
+	public synchronized void close() {
+		closed = true;
+		for(PreparedStatement ps : new ArrayList<>(idle.values())) {
+			closeQuietly(ps);
+		}
+		idle.clear();
+	}
+
+	public synchronized int size() {
+		return idle.size();
+	}
+
+	public synchronized long getHitCount() {
+		return hits;
+	}
+
+	public synchronized long getMissCount() {
+		return misses;
+	}
+
+	public synchronized long getEvictionCount() {
+		return evictions;
+	}
+
+	public synchronized double getHitRate() {
+		return (hits + misses == 0)?0:((double)hits / (hits + misses));
+	}
+
+	private static void closeQuietly(PreparedStatement ps) {
+		try {ps.close();} catch(Exception e) {}
+	}
+
+	private static class Key {
+		String sql;
+		boolean generatedKeys;
+
+		Key(String sql, boolean generatedKeys) {
+			this.sql = sql;
+			this.generatedKeys = generatedKeys;
+		}
+
+		public int hashCode() {
+			return sql.hashCode() * 31 + (generatedKeys?1:0);
+		}
+
+		public boolean equals(Object o) {
+			return (o instanceof Key) && ((Key)o).sql.equals(sql) && (((Key)o).generatedKeys == generatedKeys);
+		}
+	}
+}
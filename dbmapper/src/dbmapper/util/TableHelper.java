@@ -17,28 +17,47 @@ package dbmapper.util;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import dbmapper.DBMapperException;
+import dbmapper.Dialect;
 
 public class TableHelper {
 	private String tableName;
-	private Map<String, Column> columns = new HashMap<String, Column>();
+	private Map<String, Column> columns = new LinkedHashMap<String, Column>();
 	private UpdateHelper updateHelper;
+	private Map<Class<?>, InsertHelper> insertHelpers = Collections.synchronizedMap(new HashMap<>());
+	private Map<Class<?>, DeleteHelper> deleteHelpers = Collections.synchronizedMap(new HashMap<>());
+	private Map<Class<?>, FindHelper> findHelpers = Collections.synchronizedMap(new HashMap<>());
+	private Map<Class<?>, ScanHelper> scanHelpers = Collections.synchronizedMap(new HashMap<>());
+	// keyed by class and dialect, since the SQL depends on the dialect and the getters on the class
+	private Map<List<Object>, UpdateHelper> upsertHelpers = Collections.synchronizedMap(new HashMap<>());
 	
 	public TableHelper(Connection connection, String tableName) {
 		this.tableName = tableName;
 		try (AutoCloseables closeables = new AutoCloseables()) {
 			DatabaseMetaData dbmd = connection.getMetaData();
 			ResultSet columnsrs = closeables.add(dbmd.getColumns(null, null, tableName, null));
+			List<Column> list = new ArrayList<>();
 			while(columnsrs.next()) {
 				Column column = new Column();
 					column.setName(columnsrs.getString("COLUMN_NAME"));
 					column.setPropertyName(StringUtils.uncapitalize(StringUtils.fromUnderscoresToCamelCase(column.getName())));
 //					column.setGeneratedColumn(columnsrs.getBoolean("IS_GENERATEDCOLUMN"));
 					column.setAutoIncrement("YES".equalsIgnoreCase(columnsrs.getString("IS_AUTOINCREMENT")));
+					column.setOrdinalPosition(columnsrs.getInt("ORDINAL_POSITION"));
+				list.add(column);
+			}
+			// keep columns in table order so generated SQL is the same every time
+			list.sort((a, b) -> Integer.compare(a.getOrdinalPosition(), b.getOrdinalPosition()));
+			for(Column column : list) {
 				columns.put(column.getName(), column);
 			}
 
@@ -68,6 +87,17 @@ public class TableHelper {
 		return columns.values();
 	}
 
+	/** The primary key columns, in table order. */
+	public List<Column> getPrimaryKeyColumns() {
+		List<Column> keys = new ArrayList<>();
+		for(Column column : columns.values()) {
+			if (column.isPrimaryKey()) {
+				keys.add(column);
+			}
+		}
+		return keys;
+	}
+
 	public UpdateHelper getUpdateHelper() {
 		return updateHelper;
 	}
@@ -75,4 +105,44 @@ public class TableHelper {
 	public void setUpdateHelper(UpdateHelper updateHelper) {
 		this.updateHelper = updateHelper;
 	}
-}
\ No newline at end of file
+
+	public DeleteHelper getDeleteHelper(Class<?> clazz) {
+		return deleteHelpers.get(clazz);
+	}
+
+	public void setDeleteHelper(Class<?> clazz, DeleteHelper deleteHelper) {
+		deleteHelpers.put(clazz, deleteHelper);
+	}
+
+	public InsertHelper getInsertHelper(Class<?> clazz) {
+		return insertHelpers.get(clazz);
+	}
+
+	public void setInsertHelper(Class<?> clazz, InsertHelper insertHelper) {
+		insertHelpers.put(clazz, insertHelper);
+	}
+
+	public FindHelper getFindHelper(Class<?> clazz) {
+		return findHelpers.get(clazz);
+	}
+
+	public void setFindHelper(Class<?> clazz, FindHelper findHelper) {
+		findHelpers.put(clazz, findHelper);
+	}
+
+	public ScanHelper getScanHelper(Class<?> clazz) {
+		return scanHelpers.get(clazz);
+	}
+
+	public void setScanHelper(Class<?> clazz, ScanHelper scanHelper) {
+		scanHelpers.put(clazz, scanHelper);
+	}
+
+	public UpdateHelper getUpsertHelper(Class<?> clazz, Dialect dialect) {
+		return upsertHelpers.get(Arrays.asList(clazz, dialect));
+	}
+
+	public void setUpsertHelper(Class<?> clazz, Dialect dialect, UpdateHelper upsertHelper) {
+		upsertHelpers.put(Arrays.asList(clazz, dialect), upsertHelper);
+	}
+}
@@ -0,0 +1,185 @@
+package dbmapper.util;
+
+/*
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import dbmapper.DBMapperException;
+import dbmapper.TypeConverter;
+
+// iterates over a table page by page, see ScanHelper.  only the current page's result set is
+// open, and rows are mapped one at a time as it's read, so memory stays the same however big
+// the table is.  the statement for the following pages is prepared once and rebound with the
+// last key read, which is bound as the driver returned it.
+public class TableScan<T> implements Iterator<T>, AutoCloseable {
+	private Connection connection;
+	private StatementCache statementCache;
+	private TypeConverter typeConverter;
+	private ClassHelper classHelper;
+	private MappingEngine mappingEngine;
+	private String firstSql, nextSql;
+	private int[] keyBinds;
+	private List<String> keyColumns;
+	private int pageSize;
+	private AutoCloseables closeables = new AutoCloseables();
+	private PreparedStatement next;
+	private ResultSet rs;
+	private RowMapper<T> rowMapper;
+	private int[] keyIndexes;
+	private Object[] key;
+	private Object upTo;
+	private int rows, pages;
+	private boolean fetched, hasNext = true;
+
+	public TableScan(Connection connection, StatementCache statementCache, TypeConverter typeConverter, ClassHelper classHelper, MappingEngine mappingEngine,
+	String firstSql, String nextSql, int[] keyBinds, List<String> keyColumns, int pageSize, Object[] key, Object upTo) {
+		this.connection = connection;
+		this.statementCache = statementCache;
+		this.typeConverter = typeConverter;
+		this.classHelper = classHelper;
+		this.mappingEngine = mappingEngine;
+		this.firstSql = firstSql;
+		this.nextSql = nextSql;
+		this.keyBinds = keyBinds;
+		this.keyColumns = keyColumns;
+		this.pageSize = pageSize;
+		this.key = (key == null)?null:key.clone();
+		this.upTo = upTo;
+	}
+
+	public boolean hasNext() {
+		if (!fetched && hasNext) {
+			try {
+				while(true) {
+					if (rs == null) {
+						rs = openPage();
+					}
+					if (rs.next()) {
+						readKey();
+						fetched = true;
+						break;
+					}
+					rs.close();
+					rs = null;
+					// a short page is the last one
+					if (rows < pageSize) {
+						close();
+						break;
+					}
+				}
+			} catch(Exception e) {
+				close();
+				throw (e instanceof DBMapperException)?(DBMapperException)e:new DBMapperException(e);
+			}
+		}
+		return hasNext;
+	}
+
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		fetched = false;
+		try {
+			return rowMapper.map(rs);
+		} catch(DBMapperException e) {
+			close();
+			throw e;
+		} catch(Exception e) {
+			close();
+			throw new DBMapperException(e);
+		}
+	}
+
+	/** The number of pages selected so far. */
+	public int getPageCount() {
+		return pages;
+	}
+
+	public Spliterator<T> spliterator() {
+		return Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL);
+	}
+
+	/** A sequential stream of the rows, which closes this when it's closed. */
+	public Stream<T> stream() {
+		return StreamSupport.stream(spliterator(), false).onClose(this::close);
+	}
+
+	public void close() {
+		hasNext = false;
+		if (rs != null) {
+			try {rs.close();} catch(Exception e) {}
+			rs = null;
+		}
+		closeables.close();
+	}
+
+	private ResultSet openPage() throws Exception {
+		PreparedStatement ps;
+		int index = 1;
+		if (key == null) {
+			ps = StatementCache.prepare(connection, statementCache, closeables, firstSql, false);
+		} else {
+			if (next == null) {
+				next = StatementCache.prepare(connection, statementCache, closeables, nextSql, false);
+			}
+			ps = next;
+			for(int i = 0; i < keyBinds.length; i++) {
+				ps.setObject(index++, key[keyBinds[i]]);
+			}
+		}
+		if (upTo != null) {
+			ps.setObject(index, upTo);
+		}
+		ps.setFetchSize(pageSize);
+		ResultSet page = ps.executeQuery();
+		rows = 0;
+		pages++;
+		if (rowMapper == null) {
+			ResultSetMetaData rsmd = page.getMetaData();
+			rowMapper = classHelper.getRowMapper(rsmd, typeConverter, mappingEngine);
+			keyIndexes = new int[keyColumns.size()];
+			for(int i = 0; i < keyIndexes.length; i++) {
+				for(int j = rsmd.getColumnCount(); j >= 1; j--) {
+					if (rsmd.getColumnLabel(j).equalsIgnoreCase(keyColumns.get(i))) {
+						keyIndexes[i] = j;
+					}
+				}
+			}
+		}
+		return page;
+	}
+
+	// the key of every row is kept, since there's no telling which is the last until the page runs out
+	private void readKey() throws Exception {
+		rows++;
+		if (key == null) {
+			key = new Object[keyIndexes.length];
+		}
+		for(int i = 0; i < keyIndexes.length; i++) {
+			key[i] = rs.getObject(keyIndexes[i]);
+		}
+	}
+}
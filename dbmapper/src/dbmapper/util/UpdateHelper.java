@@ -15,9 +15,27 @@ package dbmapper.util;
  */
 
 import java.sql.Connection;
+import java.util.Collection;
 
 import dbmapper.TypeConverter;
 
 public interface UpdateHelper {
 	public int update(Connection connection, TypeConverter typeConverter, Object object) throws Exception;
+	
+	/** Like update, preparing through statementCache when it isn't null. */
+	public default int update(Connection connection, StatementCache statementCache, TypeConverter typeConverter, Object object) 
+	throws Exception {
+		return update(connection, typeConverter, object);
+	}
+	
+	/** Update every object, returning the update count of each in iteration order. */
+	public default int[] updateAll(Connection connection, StatementCache statementCache, TypeConverter typeConverter, Collection<?> objects, 
+	int batchSize) throws Exception {
+		int[] counts = new int[objects.size()];
+		int i = 0;
+		for(Object object : objects) {
+			counts[i++] = update(connection, statementCache, typeConverter, object);
+		}
+		return counts;
+	}
 }
\ No newline at end of file